@@ -2,10 +2,15 @@ package cmd
 
 import (
 	"fmt"
+	"io"
+	"net"
 	"os"
 	"os/exec"
+	"os/signal"
 	"path/filepath"
+	"strconv"
 	"strings"
+	"syscall"
 	"time"
 
 	"github.com/spf13/cobra"
@@ -287,6 +292,11 @@ func startAgent(config map[string]interface{}, detach bool) error {
 
 	fmt.Printf("📦 JAR文件: %s\n", jarFile)
 
+	// 配置了预热JVM池时交给池启动, 省去JVM启动和类加载
+	if socket := os.Getenv("AGENT_RUNTIME_WARM_POOL"); socket != "" {
+		return startAgentInWarmPool(socket, jarFile, detach)
+	}
+
 	// 构建Java命令
 	args := []string{"-jar", jarFile}
 	if port != 8080 {
@@ -348,6 +358,178 @@ func startAgent(config map[string]interface{}, detach bool) error {
 	return nil
 }
 
+// startAgentInWarmPool 通过控制socket把Agent交给runp的预热JVM池(ZygotePool)启动,
+// Agent随即在已加载运行时的JVM中运行. 当前环境变量和工作目录随请求传给Agent,
+// 前台运行时输出Agent日志直至其退出
+func startAgentInWarmPool(socket string, jarFile string, detach bool) error {
+	jarPath, err := filepath.Abs(jarFile)
+	if err != nil {
+		return err
+	}
+	workDir, err := os.Getwd()
+	if err != nil {
+		return err
+	}
+
+	logDir := "logs"
+	os.MkdirAll(logDir, 0755)
+	logPath, err := filepath.Abs(filepath.Join(logDir, "agent.log"))
+	if err != nil {
+		return err
+	}
+	// Agent追加写日志, 前台运行时只输出本次启动的部分
+	var logOffset int64
+	if info, err := os.Stat(logPath); err == nil {
+		logOffset = info.Size()
+	}
+
+	// 请求为Java Properties格式
+	var request strings.Builder
+	writeProperty := func(key, value string) {
+		request.WriteString(escapeProperty(key, true))
+		request.WriteString("=")
+		request.WriteString(escapeProperty(value, false))
+		request.WriteString("\n")
+	}
+	writeProperty("jar", jarPath)
+	writeProperty("logFile", logPath)
+	writeProperty("workDir", workDir)
+	if port != 8080 {
+		writeProperty("arg.0", fmt.Sprintf("--server.port=%d", port))
+	}
+	for _, entry := range os.Environ() {
+		if name, value, ok := strings.Cut(entry, "="); ok && name != "" {
+			writeProperty("env."+name, value)
+		}
+	}
+
+	fmt.Printf("🔥 使用预热JVM池: %s\n", socket)
+	conn, err := net.DialTimeout("unix", socket, 5*time.Second)
+	if err != nil {
+		return fmt.Errorf("连接预热JVM池失败: %v", err)
+	}
+	defer conn.Close()
+
+	if _, err := conn.Write([]byte(request.String())); err != nil {
+		return fmt.Errorf("发送启动请求失败: %v", err)
+	}
+	conn.(*net.UnixConn).CloseWrite()
+
+	response, err := io.ReadAll(conn)
+	if err != nil {
+		return fmt.Errorf("读取启动结果失败: %v", err)
+	}
+
+	var pid string
+	for _, line := range strings.Split(string(response), "\n") {
+		line = strings.TrimSpace(line)
+		if strings.HasPrefix(line, "pid=") {
+			pid = strings.TrimPrefix(line, "pid=")
+		} else if strings.HasPrefix(line, "error=") {
+			return fmt.Errorf("预热JVM池启动失败: %s", strings.TrimPrefix(line, "error="))
+		}
+	}
+	if pid == "" {
+		return fmt.Errorf("预热JVM池未返回进程ID")
+	}
+
+	if !detach {
+		pidNumber, err := strconv.Atoi(pid)
+		if err != nil {
+			return fmt.Errorf("预热JVM池返回的进程ID无效: %s", pid)
+		}
+		return followAgent(pidNumber, logPath, logOffset)
+	}
+
+	pidFile := ".agent.pid"
+	if err := os.WriteFile(pidFile, []byte(pid), 0644); err != nil {
+		return fmt.Errorf("保存PID文件失败: %v", err)
+	}
+
+	fmt.Println("🔄 Agent在后台运行")
+	fmt.Printf("📝 日志文件: %s\n", logPath)
+	fmt.Printf("🆔 进程ID: %s\n", pid)
+	fmt.Printf("📄 PID文件: %s\n", pidFile)
+	return nil
+}
+
+// followAgent 输出预热JVM中Agent的日志直至其退出, Ctrl+C时把信号转给Agent
+func followAgent(pid int, logPath string, offset int64) error {
+	process, err := os.FindProcess(pid)
+	if err != nil {
+		return err
+	}
+
+	signals := make(chan os.Signal, 1)
+	signal.Notify(signals, os.Interrupt, syscall.SIGTERM)
+	defer signal.Stop(signals)
+
+	fmt.Println("🔄 Agent在前台运行 (Ctrl+C 停止)")
+	ticker := time.NewTicker(200 * time.Millisecond)
+	defer ticker.Stop()
+	for {
+		offset = copyLog(logPath, offset)
+		select {
+		case sig := <-signals:
+			process.Signal(sig)
+		case <-ticker.C:
+			// Agent不是本进程的子进程, 用0信号检查是否仍在运行
+			if process.Signal(syscall.Signal(0)) != nil {
+				copyLog(logPath, offset)
+				return nil
+			}
+		}
+	}
+}
+
+// copyLog 把日志从offset起的新内容写到标准输出, 返回新的offset
+func copyLog(logPath string, offset int64) int64 {
+	file, err := os.Open(logPath)
+	if err != nil {
+		return offset
+	}
+	defer file.Close()
+
+	if _, err := file.Seek(offset, io.SeekStart); err != nil {
+		return offset
+	}
+	written, _ := io.Copy(os.Stdout, file)
+	return offset + written
+}
+
+// escapeProperty 按Java Properties格式转义, key中的分隔符和空格也需转义
+func escapeProperty(value string, key bool) string {
+	var builder strings.Builder
+	for i, r := range value {
+		switch r {
+		case '\\':
+			builder.WriteString(`\\`)
+		case '\n':
+			builder.WriteString(`\n`)
+		case '\r':
+			builder.WriteString(`\r`)
+		case '\t':
+			builder.WriteString(`\t`)
+		case '\f':
+			builder.WriteString(`\f`)
+		case '=', ':', '#', '!':
+			if key {
+				builder.WriteRune('\\')
+			}
+			builder.WriteRune(r)
+		case ' ':
+			// value开头的空格会被当作分隔符的一部分丢弃
+			if key || i == 0 {
+				builder.WriteRune('\\')
+			}
+			builder.WriteRune(r)
+		default:
+			builder.WriteRune(r)
+		}
+	}
+	return builder.String()
+}
+
 func findJarFile() (string, error) {
 	// 查找target目录下的JAR文件
 	jarFiles, err := filepath.Glob("target/*.jar")
@@ -0,0 +1,563 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runk;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxEvent;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxState;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import io.fabric8.kubernetes.api.model.ContainerBuilder;
+import io.fabric8.kubernetes.api.model.ContainerPort;
+import io.fabric8.kubernetes.api.model.ContainerPortBuilder;
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.EnvVarBuilder;
+import io.fabric8.kubernetes.api.model.IntOrString;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceRequirements;
+import io.fabric8.kubernetes.api.model.ResourceRequirementsBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.readiness.Readiness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Sandbox backend running each sandbox as a Kubernetes pod.
+ *
+ * <p>
+ * Pods are addressed by their IP, so nothing is published on a node. Readiness comes
+ * from the pod's readiness probe, observed through an informer instead of polling the
+ * sandbox server. Ready pods can be kept on standby per sandbox type and are handed to
+ * sessions on demand, while the pool is refilled in the background. Pod creates share a
+ * bounded number of API server slots.
+ *
+ * <p>
+ * Pods request {@code kubernetes-cpu-request} and {@code kubernetes-memory-request}
+ * and may stay pending until {@code kubernetes-pod-ready-timeout}, which lets the
+ * cluster autoscaler add nodes when sandbox demand exceeds the cluster.
+ */
+public class KubernetesSandboxBackend implements SandboxBackend {
+
+	private static final Logger logger = LoggerFactory.getLogger(KubernetesSandboxBackend.class);
+
+	static final String MANAGED_BY_LABEL = "app.kubernetes.io/managed-by";
+
+	static final String MANAGED_BY = "agent-runtime-sandbox";
+
+	static final String TYPE_LABEL = "sandbox.agent-runtime.io/type";
+
+	static final String STATE_LABEL = "sandbox.agent-runtime.io/state";
+
+	static final String SESSION_ANNOTATION = "sandbox.agent-runtime.io/session";
+
+	static final String STATE_WARM = "warm";
+
+	static final String STATE_CLAIMED = "claimed";
+
+	private static final String CONTAINER_NAME = "sandbox";
+
+	private static final int BROWSER_API_PORT = 3000;
+
+	private static final long REFILL_INTERVAL_SECONDS = 10;
+
+	private static final int CLAIM_ATTEMPTS = 3;
+
+	private final SandboxProperties config;
+
+	/** Readiness waits of pods being started, by pod name */
+	private final Map<String, CompletableFuture<Pod>> pendingPods = new ConcurrentHashMap<>();
+
+	/** Ready standby pods, by sandbox type */
+	private final Map<SandboxType, Queue<Pod>> warmPods = new ConcurrentHashMap<>();
+
+	/** Standby pods being started, by sandbox type */
+	private final Map<SandboxType, AtomicInteger> startingPods = new ConcurrentHashMap<>();
+
+	private final Semaphore createPermits;
+
+	private final List<Consumer<SandboxEvent>> listeners = new CopyOnWriteArrayList<>();
+
+	private KubernetesClient client;
+
+	private final boolean ownsClient;
+
+	private SharedIndexInformer<Pod> informer;
+
+	private ExecutorService creator;
+
+	private ScheduledExecutorService refresher;
+
+	public KubernetesSandboxBackend(SandboxProperties config) {
+		this(config, null);
+	}
+
+	public KubernetesSandboxBackend(SandboxProperties config, KubernetesClient client) {
+		this.config = config;
+		this.client = client;
+		this.ownsClient = client == null;
+		this.createPermits = new Semaphore(config.getKubernetesCreateConcurrency());
+	}
+
+	@Override
+	public void init() {
+		if (config.isUnixSocketTransport()) {
+			throw new IllegalStateException("Unix socket transport is not supported on Kubernetes");
+		}
+		if (client == null) {
+			client = new KubernetesClientBuilder().build();
+		}
+
+		informer = client.pods()
+			.inNamespace(config.getKubernetesNamespace())
+			.withLabel(MANAGED_BY_LABEL, MANAGED_BY)
+			.inform(new PodEventHandler());
+		adoptWarmPods();
+
+		creator = Executors.newFixedThreadPool(config.getKubernetesCreateConcurrency());
+		refresher = Executors.newSingleThreadScheduledExecutor();
+		refresher.scheduleWithFixedDelay(this::refillWarmPools, 0, REFILL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		logger.info("Kubernetes sandbox backend initialized, namespace: {}, warm pools: {}",
+				config.getKubernetesNamespace(), config.getKubernetesWarmPools());
+	}
+
+	/**
+	 * Hand a ready standby pod to the session, or create a new pod when the pool is
+	 * empty
+	 */
+	@Override
+	public ContainerModel create(String sessionId, SandboxType sandboxType) {
+		Pod pod = claimWarmPod(sandboxType, sessionId);
+		if (pod != null) {
+			refillWarmPools();
+			ContainerModel model = new ContainerModel(sessionId, pod.getMetadata().getName(), null,
+					sandboxType.getPorts(), sandboxType.getValue());
+			model.setImageName(sandboxType.getImageName());
+			applyAddress(model, pod);
+			logger.debug("Claimed standby pod {} for session: {}", pod.getMetadata().getName(), sessionId);
+			return model;
+		}
+
+		String name = createPod(sandboxType, sessionId);
+		ContainerModel model = new ContainerModel(sessionId, name, null, sandboxType.getPorts(),
+				sandboxType.getValue());
+		model.setImageName(sandboxType.getImageName());
+		return model;
+	}
+
+	/**
+	 * Pods start as soon as they are scheduled
+	 */
+	@Override
+	public void start(ContainerModel container) {
+	}
+
+	/**
+	 * Wait for the informer to report the pod ready, then address it by pod IP
+	 */
+	@Override
+	public void awaitReady(ContainerModel container) {
+		if (container.getIpAddress() != null) {
+			return;
+		}
+		applyAddress(container, awaitPod(container.getContainerId()));
+	}
+
+	/**
+	 * Pods cannot be stopped, so they are deleted
+	 */
+	@Override
+	public void stop(ContainerModel container) {
+		remove(container);
+	}
+
+	@Override
+	public void remove(ContainerModel container) {
+		pendingPods.remove(container.getContainerId());
+		deletePod(container.getContainerId());
+	}
+
+	@Override
+	public SandboxState inspect(ContainerModel container) {
+		Pod pod = client.pods().inNamespace(config.getKubernetesNamespace()).withName(container.getContainerId()).get();
+		if (pod == null) {
+			return SandboxState.MISSING;
+		}
+		if (isTerminated(pod)) {
+			return SandboxState.STOPPED;
+		}
+		return "Pending".equals(pod.getStatus().getPhase()) ? SandboxState.CREATED : SandboxState.RUNNING;
+	}
+
+	@Override
+	public void addListener(Consumer<SandboxEvent> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void close() {
+		if (refresher != null) {
+			refresher.shutdownNow();
+		}
+		if (creator != null) {
+			creator.shutdownNow();
+		}
+		if (config.isAutoCleanup()) {
+			warmPods.values().forEach(pods -> pods.forEach(pod -> deletePod(pod.getMetadata().getName())));
+		}
+		if (informer != null) {
+			informer.close();
+		}
+		if (ownsClient && client != null) {
+			client.close();
+		}
+	}
+
+	private void applyAddress(ContainerModel model, Pod pod) {
+		String podIp = pod.getStatus().getPodIP();
+		model.setIpAddress(podIp);
+		model.setBaseUrl("http://" + podIp + ":" + model.getPorts().get(0));
+		model.setDockerHost(pod.getSpec().getNodeName());
+	}
+
+	/**
+	 * Number of ready standby pods for a sandbox type
+	 */
+	int getWarmPoolSize(SandboxType sandboxType) {
+		Queue<Pod> pool = warmPods.get(sandboxType);
+		return pool == null ? 0 : pool.size();
+	}
+
+	/**
+	 * Take a ready standby pod out of the pool and mark it as the session's
+	 */
+	private Pod claimWarmPod(SandboxType sandboxType, String sessionId) {
+		Queue<Pod> pool = warmPods.get(sandboxType);
+		Pod pod;
+		while (pool != null && (pod = pool.poll()) != null) {
+			String name = pod.getMetadata().getName();
+			// The queued pod is the snapshot from when it became ready, status updates such
+			// as a readiness flap have bumped its resource version since
+			Pod latest = informer.getStore().get(pod);
+			for (int attempt = 0; attempt < CLAIM_ATTEMPTS && isClaimable(latest); attempt++) {
+				Pod claimed = new PodBuilder(latest).editMetadata()
+					.addToLabels(STATE_LABEL, STATE_CLAIMED)
+					.addToAnnotations(SESSION_ANNOTATION, sessionId)
+					.endMetadata()
+					.build();
+				try {
+					// The resource version makes this fail if the pod changed since it was read
+					return client.pods().inNamespace(config.getKubernetesNamespace()).resource(claimed).update();
+				}
+				catch (KubernetesClientException e) {
+					if (e.getCode() != HttpURLConnection.HTTP_CONFLICT) {
+						logger.warn("Failed to claim standby pod {}: {}", name, e.getMessage());
+						break;
+					}
+					latest = client.pods().inNamespace(config.getKubernetesNamespace()).withName(name).get();
+				}
+			}
+			if (latest != null && STATE_WARM.equals(latest.getMetadata().getLabels().get(STATE_LABEL))) {
+				// Out of the pool now, so it would otherwise run unused until the next restart
+				logger.info("Discarding standby pod {} that could not be claimed", name);
+				deletePod(name);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether a pod is still an unclaimed standby pod ready to take a session
+	 */
+	private static boolean isClaimable(Pod pod) {
+		return pod != null && STATE_WARM.equals(pod.getMetadata().getLabels().get(STATE_LABEL)) && isUsable(pod);
+	}
+
+	/**
+	 * Create a pod within the API server concurrency limit, registering its readiness
+	 * wait first so no event is missed
+	 */
+	private String createPod(SandboxType sandboxType, String sessionId) {
+		String name = generatePodName(sandboxType);
+		pendingPods.put(name, new CompletableFuture<>());
+		try {
+			createPermits.acquire();
+			try {
+				client.pods()
+					.inNamespace(config.getKubernetesNamespace())
+					.resource(buildPod(name, sandboxType, sessionId))
+					.create();
+			}
+			finally {
+				createPermits.release();
+			}
+			return name;
+		}
+		catch (Exception e) {
+			pendingPods.remove(name);
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			throw new RuntimeException("Failed to create sandbox pod " + name, e);
+		}
+	}
+
+	private Pod awaitPod(String name) {
+		CompletableFuture<Pod> ready = pendingPods.get(name);
+		if (ready == null) {
+			throw new IllegalStateException("Pod " + name + " is not being started");
+		}
+		try {
+			return ready.get(config.getKubernetesPodReadyTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			throw new RuntimeException("Pod " + name + " failed to become ready", e);
+		}
+		finally {
+			pendingPods.remove(name);
+		}
+	}
+
+	/**
+	 * Top up every standby pool; creates run on the creator pool in one batch.
+	 * Synchronized as both request threads and the refresher call it, and each must see
+	 * the pods the other is starting.
+	 */
+	synchronized void refillWarmPools() {
+		for (Map.Entry<String, Integer> entry : config.getKubernetesWarmPools().entrySet()) {
+			SandboxType sandboxType = SandboxType.fromValue(entry.getKey());
+			AtomicInteger starting = startingPods.computeIfAbsent(sandboxType, type -> new AtomicInteger());
+			Queue<Pod> pool = warmPods.computeIfAbsent(sandboxType, type -> new ConcurrentLinkedQueue<>());
+			int missing = entry.getValue() - pool.size() - starting.get();
+			for (int i = 0; i < missing; i++) {
+				starting.incrementAndGet();
+				creator.execute(() -> {
+					String name = null;
+					try {
+						name = createPod(sandboxType, null);
+						pool.add(awaitPod(name));
+					}
+					catch (Exception e) {
+						logger.warn("Failed to start standby {} pod: {}", sandboxType, e.getMessage());
+						if (name != null) {
+							deletePod(name);
+						}
+					}
+					finally {
+						starting.decrementAndGet();
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Take over standby pods left by a previous manager
+	 */
+	private void adoptWarmPods() {
+		for (Pod pod : informer.getStore().list()) {
+			Map<String, String> labels = pod.getMetadata().getLabels();
+			if (STATE_WARM.equals(labels.get(STATE_LABEL)) && isUsable(pod)) {
+				SandboxType sandboxType = SandboxType.fromValue(labels.get(TYPE_LABEL));
+				warmPods.computeIfAbsent(sandboxType, type -> new ConcurrentLinkedQueue<>()).add(pod);
+			}
+		}
+	}
+
+	private Pod buildPod(String name, SandboxType sandboxType, String sessionId) {
+		boolean warm = sessionId == null;
+
+		List<EnvVar> env = new ArrayList<>();
+		env.add(new EnvVarBuilder().withName("POD_IP")
+			.withNewValueFrom()
+			.withNewFieldRef()
+			.withFieldPath("status.podIP")
+			.endFieldRef()
+			.endValueFrom()
+			.build());
+		env.add(new EnvVar("SESSION_ID", warm ? name : sessionId, null));
+		env.add(new EnvVar("SECRET_TOKEN", config.getBearerToken(), null));
+		env.add(new EnvVar("WORKSPACE_DIR", "/workspace", null));
+		List<String> preloadModules = config.getPreloadModules(sandboxType.getValue());
+		if (!preloadModules.isEmpty()) {
+			env.add(new EnvVar("SANDBOX_PRELOAD_MODULES", String.join(",", preloadModules), null));
+		}
+		if (sandboxType == SandboxType.BROWSER) {
+			env.add(new EnvVar("DOMAIN", "$(POD_IP):" + BROWSER_API_PORT, null));
+		}
+		if (config.getDockerEnvironment() != null) {
+			config.getDockerEnvironment().forEach((key, value) -> env.add(new EnvVar(key, value, null)));
+		}
+
+		List<ContainerPort> ports = sandboxType.getPorts()
+			.stream()
+			.map(port -> new ContainerPortBuilder().withContainerPort(port).build())
+			.toList();
+
+		return new PodBuilder().withNewMetadata()
+			.withName(name)
+			.addToLabels(MANAGED_BY_LABEL, MANAGED_BY)
+			.addToLabels(TYPE_LABEL, sandboxType.getValue())
+			.addToLabels(STATE_LABEL, warm ? STATE_WARM : STATE_CLAIMED)
+			.addToAnnotations(warm ? Map.of() : Map.of(SESSION_ANNOTATION, sessionId))
+			.endMetadata()
+			.withNewSpec()
+			.withRestartPolicy("Never")
+			// Sandboxed code has no business with the API server
+			.withAutomountServiceAccountToken(false)
+			.withNodeSelector(config.getKubernetesNodeSelector())
+			.withPriorityClassName(warm ? config.getKubernetesWarmPriorityClass() : null)
+			.addToContainers(new ContainerBuilder().withName(CONTAINER_NAME)
+				.withImage(sandboxType.getImageName())
+				.withPorts(ports)
+				.withEnv(env)
+				.withResources(buildResources())
+				.withNewReadinessProbe()
+				.withNewHttpGet()
+				.withPath("/healthz")
+				.withPort(new IntOrString(sandboxType.getPorts().get(0)))
+				.endHttpGet()
+				.withPeriodSeconds(1)
+				.withFailureThreshold(1)
+				.endReadinessProbe()
+				.build())
+			.endSpec()
+			.build();
+	}
+
+	private ResourceRequirements buildResources() {
+		Map<String, Quantity> requests = new HashMap<>();
+		Map<String, Quantity> limits = new HashMap<>();
+		putQuantity(requests, "cpu", config.getKubernetesCpuRequest());
+		putQuantity(requests, "memory", config.getKubernetesMemoryRequest());
+		putQuantity(limits, "cpu", config.getKubernetesCpuLimit());
+		putQuantity(limits, "memory", config.getKubernetesMemoryLimit());
+		return new ResourceRequirementsBuilder().withLimits(limits).withRequests(requests).build();
+	}
+
+	private void putQuantity(Map<String, Quantity> quantities, String resource, String amount) {
+		if (amount != null && !amount.isEmpty()) {
+			quantities.put(resource, new Quantity(amount));
+		}
+	}
+
+	private String generatePodName(SandboxType sandboxType) {
+		String prefix = config.getContainerPrefixKey().toLowerCase().replaceAll("[^a-z0-9-]", "-");
+		return prefix + sandboxType.getValue() + "-" + UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	private void deletePod(String name) {
+		try {
+			client.pods().inNamespace(config.getKubernetesNamespace()).withName(name).delete();
+		}
+		catch (Exception e) {
+			logger.warn("Failed to delete sandbox pod: {}", name, e);
+		}
+	}
+
+	private static boolean isUsable(Pod pod) {
+		return Readiness.isPodReady(pod) && pod.getStatus().getPodIP() != null;
+	}
+
+	private static boolean isTerminated(Pod pod) {
+		String phase = pod.getStatus() == null ? null : pod.getStatus().getPhase();
+		return "Failed".equals(phase) || "Succeeded".equals(phase);
+	}
+
+	/**
+	 * Completes readiness waits and drops standby pods that went away
+	 */
+	private class PodEventHandler implements ResourceEventHandler<Pod> {
+
+		@Override
+		public void onAdd(Pod pod) {
+			onChange(pod);
+		}
+
+		@Override
+		public void onUpdate(Pod oldPod, Pod pod) {
+			onChange(pod);
+		}
+
+		@Override
+		public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+			String name = pod.getMetadata().getName();
+			CompletableFuture<Pod> pending = pendingPods.get(name);
+			if (pending != null) {
+				pending.completeExceptionally(new IllegalStateException("Pod " + name + " was deleted"));
+			}
+			warmPods.values().forEach(pods -> pods.removeIf(warm -> warm.getMetadata().getName().equals(name)));
+			notifyClaimed(pod, SandboxState.MISSING);
+		}
+
+		private void onChange(Pod pod) {
+			String name = pod.getMetadata().getName();
+			CompletableFuture<Pod> pending = pendingPods.get(name);
+			if (isTerminated(pod)) {
+				if (pending != null) {
+					pending.completeExceptionally(
+							new IllegalStateException("Pod " + name + " terminated: " + pod.getStatus().getPhase()));
+				}
+				warmPods.values().forEach(pods -> pods.removeIf(warm -> warm.getMetadata().getName().equals(name)));
+				notifyClaimed(pod, SandboxState.STOPPED);
+			}
+			else if (isUsable(pod) && pending != null) {
+				pending.complete(pod);
+			}
+		}
+
+		private void notifyClaimed(Pod pod, SandboxState state) {
+			if (STATE_CLAIMED.equals(pod.getMetadata().getLabels().get(STATE_LABEL))) {
+				SandboxEvent event = new SandboxEvent(pod.getMetadata().getName(), state);
+				listeners.forEach(listener -> listener.accept(event));
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runk;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackendProvider;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+
+/**
+ * Provides the Kubernetes backend for deployment type "kubernetes"
+ */
+public class KubernetesSandboxBackendProvider implements SandboxBackendProvider {
+
+	@Override
+	public String getType() {
+		return "kubernetes";
+	}
+
+	@Override
+	public SandboxBackend create(SandboxProperties properties) {
+		return new KubernetesSandboxBackend(properties);
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runk;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.service.ContainerService;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodConditionBuilder;
+import io.fabric8.kubernetes.api.model.PodStatusBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.EnableKubernetesMockClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Kubernetes backend behind ContainerService against an in-process mock API
+ * server. Pods never start
+ * there, so tests mark them ready by writing their status.
+ */
+@EnableKubernetesMockClient(crud = true)
+class KubernetesSandboxBackendTest {
+
+	static KubernetesClient client;
+
+	private KubernetesSandboxBackend backend;
+
+	private ContainerService service;
+
+	@AfterEach
+	void tearDown() {
+		if (service != null) {
+			service.cleanup();
+		}
+	}
+
+	@Test
+	void createWaitsForPodReadiness() throws Exception {
+		start(properties("cold", Map.of()));
+
+		CompletableFuture<ContainerModel> created = CompletableFuture
+			.supplyAsync(() -> service.createContainer("session-1", SandboxType.BASE));
+		Pod pod = awaitPod("cold", KubernetesSandboxBackend.STATE_CLAIMED);
+		assertEquals("session-1",
+				pod.getMetadata().getAnnotations().get(KubernetesSandboxBackend.SESSION_ANNOTATION));
+		assertFalse(pod.getSpec().getAutomountServiceAccountToken());
+		assertEquals("500m", pod.getSpec().getContainers().get(0).getResources().getRequests().get("cpu").toString());
+		assertFalse(created.isDone());
+
+		markReady("cold", pod, "10.0.0.5");
+		ContainerModel model = created.get(10, TimeUnit.SECONDS);
+		assertEquals("http://10.0.0.5:8000", model.getBaseUrl());
+		assertEquals(pod.getMetadata().getName(), model.getContainerId());
+
+		service.removeContainer("session-1");
+		assertNull(service.getContainer("session-1"));
+		await(() -> client.pods().inNamespace("cold").list().getItems().isEmpty());
+	}
+
+	@Test
+	void createClaimsWarmPodAndRefillsPool() throws Exception {
+		start(properties("warm", Map.of("base", 1)));
+
+		Pod warm = awaitPod("warm", KubernetesSandboxBackend.STATE_WARM);
+		markReady("warm", warm, "10.0.0.6");
+		await(() -> backend.getWarmPoolSize(SandboxType.BASE) == 1);
+
+		ContainerModel model = service.createContainer("session-2", SandboxType.BASE);
+		assertEquals(warm.getMetadata().getName(), model.getContainerId());
+		assertEquals("http://10.0.0.6:8000", model.getBaseUrl());
+		Pod claimed = client.pods().inNamespace("warm").withName(model.getContainerId()).get();
+		assertEquals(KubernetesSandboxBackend.STATE_CLAIMED,
+				claimed.getMetadata().getLabels().get(KubernetesSandboxBackend.STATE_LABEL));
+
+		Pod replacement = awaitPod("warm", KubernetesSandboxBackend.STATE_WARM);
+		assertNotEquals(warm.getMetadata().getName(), replacement.getMetadata().getName());
+
+		// A sandbox that dies on its own is forgotten
+		claimed.getStatus().setPhase("Failed");
+		client.pods().inNamespace("warm").resource(claimed).updateStatus();
+		await(() -> service.getContainer("session-2") == null);
+	}
+
+	@Test
+	void createClaimsStandbyPodUpdatedSinceReady() throws Exception {
+		start(properties("flap", Map.of("base", 1)));
+
+		Pod warm = awaitPod("flap", KubernetesSandboxBackend.STATE_WARM);
+		String name = warm.getMetadata().getName();
+		markReady("flap", warm, "10.0.0.7");
+		await(() -> backend.getWarmPoolSize(SandboxType.BASE) == 1);
+		setReady("flap", name, false);
+		setReady("flap", name, true);
+		client.pods().inNamespace("flap").withName(name).edit(pod -> {
+			pod.getMetadata().getAnnotations().put("touched", "true");
+			return pod;
+		});
+
+		ContainerModel model = service.createContainer("session-3", SandboxType.BASE);
+		assertEquals(name, model.getContainerId());
+		assertEquals(KubernetesSandboxBackend.STATE_CLAIMED, client.pods()
+			.inNamespace("flap")
+			.withName(name)
+			.get()
+			.getMetadata()
+			.getLabels()
+			.get(KubernetesSandboxBackend.STATE_LABEL));
+	}
+
+	@Test
+	void createDiscardsStandbyPodNoLongerReady() throws Exception {
+		start(properties("stale", Map.of("base", 1)));
+
+		Pod warm = awaitPod("stale", KubernetesSandboxBackend.STATE_WARM);
+		markReady("stale", warm, "10.0.0.7");
+		await(() -> backend.getWarmPoolSize(SandboxType.BASE) == 1);
+		setReady("stale", warm.getMetadata().getName(), false);
+
+		CompletableFuture<ContainerModel> created = CompletableFuture
+			.supplyAsync(() -> service.createContainer("session-4", SandboxType.BASE));
+		Pod cold = awaitPod("stale", KubernetesSandboxBackend.STATE_CLAIMED);
+		assertNotEquals(warm.getMetadata().getName(), cold.getMetadata().getName());
+		await(() -> client.pods().inNamespace("stale").withName(warm.getMetadata().getName()).get() == null);
+
+		markReady("stale", cold, "10.0.0.8");
+		assertEquals(cold.getMetadata().getName(), created.get(10, TimeUnit.SECONDS).getContainerId());
+	}
+
+	private void start(SandboxProperties properties) {
+		backend = new KubernetesSandboxBackend(properties, client);
+		service = new ContainerService(properties, backend);
+		service.init();
+	}
+
+	private SandboxProperties properties(String namespace, Map<String, Integer> warmPools) {
+		SandboxProperties properties = new SandboxProperties();
+		properties.setKubernetesNamespace(namespace);
+		properties.setKubernetesWarmPools(warmPools);
+		properties.setKubernetesPodReadyTimeout(Duration.ofSeconds(30));
+		return properties;
+	}
+
+	private Pod awaitPod(String namespace, String state) throws InterruptedException {
+		await(() -> !pods(namespace, state).isEmpty());
+		return pods(namespace, state).get(0);
+	}
+
+	private List<Pod> pods(String namespace, String state) {
+		return client.pods()
+			.inNamespace(namespace)
+			.withLabel(KubernetesSandboxBackend.STATE_LABEL, state)
+			.list()
+			.getItems();
+	}
+
+	private void markReady(String namespace, Pod pod, String podIp) {
+		pod.setStatus(new PodStatusBuilder().withPhase("Running")
+			.withPodIP(podIp)
+			.withConditions(new PodConditionBuilder().withType("Ready").withStatus("True").build())
+			.build());
+		client.pods().inNamespace(namespace).resource(pod).updateStatus();
+	}
+
+	private void setReady(String namespace, String name, boolean ready) {
+		Pod pod = client.pods().inNamespace(namespace).withName(name).get();
+		pod.getStatus().getConditions().get(0).setStatus(ready ? "True" : "False");
+		client.pods().inNamespace(namespace).resource(pod).updateStatus();
+	}
+
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 10s");
+			Thread.sleep(20);
+		}
+	}
+
+}
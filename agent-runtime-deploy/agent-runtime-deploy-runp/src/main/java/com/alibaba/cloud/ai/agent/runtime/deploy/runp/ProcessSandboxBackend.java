@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxEvent;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxState;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.client.SandboxHttpClient;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Sandbox backend running the sandbox server as a local child process instead of a
+ * Docker container.
+ *
+ * <p>
+ * Meant for trusted workloads where container start dominates latency. Each session
+ * gets its own working directory and port, and optionally runs as another user and in
+ * its own Linux namespaces through {@code setpriv} and {@code unshare}. The sandbox
+ * server and its Python dependencies must be installed on the host, at the path given
+ * by {@code process-command}.
+ */
+public class ProcessSandboxBackend implements SandboxBackend {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProcessSandboxBackend.class);
+
+	private static final String SOCKET_FILE = "sandbox.sock";
+
+	private static final String LOG_FILE = "sandbox.log";
+
+	private static final String WORKSPACE_DIR = "workspace";
+
+	private static final Map<String, List<String>> NAMESPACE_FLAGS = Map.of("pid",
+			List.of("--pid", "--fork", "--kill-child", "--mount-proc"), "mount", List.of("--mount"), "ipc",
+			List.of("--ipc"), "uts", List.of("--uts"), "net", List.of("--net"));
+
+	private final SandboxProperties config;
+
+	/** Running sandbox processes, by session */
+	private final Map<String, Process> processes = new ConcurrentHashMap<>();
+
+	private final Set<Integer> occupiedPorts = ConcurrentHashMap.newKeySet();
+
+	private final List<Consumer<SandboxEvent>> listeners = new CopyOnWriteArrayList<>();
+
+	public ProcessSandboxBackend(SandboxProperties config) {
+		this.config = config;
+	}
+
+	@Override
+	public void init() {
+		if (config.getProcessNamespaces().contains("net") && !config.isUnixSocketTransport()) {
+			throw new IllegalStateException("A network namespace requires the uds transport");
+		}
+		logger.info("Process sandbox backend initialized, working directory: {}", config.getProcessWorkDir());
+	}
+
+	/**
+	 * Prepare the session's working directory and address
+	 */
+	@Override
+	public ContainerModel create(String sessionId, SandboxType sandboxType) {
+		Path workDir = workDir(sessionId);
+		Integer port = null;
+		try {
+			Path workspace = workDir.resolve(WORKSPACE_DIR);
+			Files.createDirectories(workspace);
+			changeOwner(workDir);
+
+			String baseUrl = "http://localhost";
+			if (!config.isUnixSocketTransport()) {
+				port = allocatePort();
+				baseUrl = baseUrl + ":" + port;
+			}
+			ContainerModel model = new ContainerModel(sessionId, null, baseUrl,
+					port != null ? List.of(port) : List.of(), sandboxType.getValue());
+			model.setMountDir(workspace.toString());
+			if (config.isUnixSocketTransport()) {
+				model.setSocketPath(workDir.resolve(SOCKET_FILE).toString());
+			}
+			return model;
+		}
+		catch (Exception e) {
+			if (port != null) {
+				occupiedPorts.remove(port);
+			}
+			deleteWorkDir(workDir);
+			throw new RuntimeException("Failed to prepare sandbox process for session: " + sessionId, e);
+		}
+	}
+
+	/**
+	 * Launch the sandbox server process
+	 */
+	@Override
+	public void start(ContainerModel container) {
+		Path workDir = workDir(container.getSessionId());
+		ProcessBuilder builder = new ProcessBuilder(buildCommand()).directory(new File(container.getMountDir()))
+			.redirectErrorStream(true)
+			.redirectOutput(ProcessBuilder.Redirect.appendTo(workDir.resolve(LOG_FILE).toFile()));
+		Map<String, String> env = builder.environment();
+		env.put("SESSION_ID", container.getSessionId());
+		env.put("SECRET_TOKEN", config.getBearerToken());
+		List<String> preloadModules = config.getPreloadModules(container.getSandboxType());
+		if (!preloadModules.isEmpty()) {
+			env.put("SANDBOX_PRELOAD_MODULES", String.join(",", preloadModules));
+		}
+		if (config.getDockerEnvironment() != null) {
+			env.putAll(config.getDockerEnvironment());
+		}
+		env.put("WORKSPACE_DIR", container.getMountDir());
+		if (container.getSocketPath() != null) {
+			env.put("SANDBOX_SOCKET", container.getSocketPath());
+		}
+		else {
+			env.put("SANDBOX_HOST", "127.0.0.1");
+			env.put("SANDBOX_PORT", String.valueOf(container.getPorts().get(0)));
+		}
+
+		try {
+			Process process = builder.start();
+			container.setContainerId(String.valueOf(process.pid()));
+			processes.put(container.getSessionId(), process);
+			process.onExit().thenRun(() -> {
+				// Only report exits nobody asked for
+				if (processes.remove(container.getSessionId(), process)) {
+					SandboxEvent event = new SandboxEvent(container.getContainerId(), SandboxState.STOPPED);
+					listeners.forEach(listener -> listener.accept(event));
+				}
+			});
+		}
+		catch (IOException e) {
+			// Nothing listens on the port, hand it back even if remove is never called
+			container.getPorts().forEach(occupiedPorts::remove);
+			throw new RuntimeException("Failed to start sandbox process", e);
+		}
+	}
+
+	/**
+	 * Poll the sandbox server until it answers its health check
+	 */
+	@Override
+	public void awaitReady(ContainerModel container) {
+		Process process = processes.get(container.getSessionId());
+		long deadline = System.nanoTime() + config.getProcessStartTimeout().toNanos();
+		try (SandboxHttpClient client = new SandboxHttpClient(container)) {
+			while (System.nanoTime() < deadline) {
+				if (process == null || !process.isAlive()) {
+					throw new IllegalStateException("Sandbox process exited, see "
+							+ workDir(container.getSessionId()).resolve(LOG_FILE));
+				}
+				boolean listening = container.getSocketPath() == null || new File(container.getSocketPath()).exists();
+				if (listening && client.healthCheck()) {
+					return;
+				}
+				Thread.sleep(10);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for sandbox process", e);
+		}
+		catch (IOException e) {
+			logger.debug("Failed to close health check client", e);
+		}
+		throw new IllegalStateException("Sandbox process failed to become ready within timeout");
+	}
+
+	@Override
+	public void stop(ContainerModel container) {
+		Process process = processes.remove(container.getSessionId());
+		if (process != null) {
+			stopProcess(process);
+		}
+	}
+
+	/**
+	 * Stop the process if still running and remove its working directory
+	 */
+	@Override
+	public void remove(ContainerModel container) {
+		stop(container);
+		container.getPorts().forEach(occupiedPorts::remove);
+		deleteWorkDir(workDir(container.getSessionId()));
+	}
+
+	@Override
+	public SandboxState inspect(ContainerModel container) {
+		Process process = processes.get(container.getSessionId());
+		if (process == null) {
+			return SandboxState.MISSING;
+		}
+		return process.isAlive() ? SandboxState.RUNNING : SandboxState.STOPPED;
+	}
+
+	@Override
+	public void addListener(Consumer<SandboxEvent> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void close() {
+		// Processes die with the manager anyway, ContainerService removes them on cleanup
+	}
+
+	private Path workDir(String sessionId) {
+		return Paths.get(config.getProcessWorkDir(), sessionId).toAbsolutePath();
+	}
+
+	/**
+	 * Wrap the configured command with the namespace and user switches
+	 */
+	private List<String> buildCommand() {
+		List<String> command = new ArrayList<>();
+		if (!config.getProcessNamespaces().isEmpty()) {
+			command.add("unshare");
+			for (String namespace : config.getProcessNamespaces()) {
+				List<String> flags = NAMESPACE_FLAGS.get(namespace);
+				if (flags == null) {
+					throw new IllegalArgumentException("Unsupported namespace: " + namespace);
+				}
+				flags.stream().filter(flag -> !command.contains(flag)).forEach(command::add);
+			}
+		}
+		if (config.getProcessUser() != null && !config.getProcessUser().isEmpty()) {
+			String[] ids = config.getProcessUser().split(":");
+			command.add("setpriv");
+			command.add("--reuid=" + ids[0]);
+			command.add("--regid=" + (ids.length > 1 ? ids[1] : ids[0]));
+			command.add("--clear-groups");
+		}
+		command.addAll(config.getProcessCommand());
+		return command;
+	}
+
+	/**
+	 * Hand the session directory to the sandbox user, so the server can write to it
+	 */
+	private void changeOwner(Path workDir) throws IOException, InterruptedException {
+		if (config.getProcessUser() == null || config.getProcessUser().isEmpty()) {
+			return;
+		}
+		Process chown = new ProcessBuilder("chown", "-R", config.getProcessUser(), workDir.toString())
+			.redirectErrorStream(true)
+			.start();
+		if (chown.waitFor() != 0) {
+			throw new IOException("Failed to change owner of " + workDir + " to " + config.getProcessUser());
+		}
+	}
+
+	private void stopProcess(Process process) {
+		// Kernels and shells started by the server go with it
+		process.descendants().forEach(ProcessHandle::destroy);
+		process.destroy();
+		try {
+			if (!process.waitFor(10, TimeUnit.SECONDS)) {
+				process.descendants().forEach(ProcessHandle::destroyForcibly);
+				process.destroyForcibly();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			process.destroyForcibly();
+		}
+	}
+
+	private void deleteWorkDir(Path workDir) {
+		if (!Files.exists(workDir)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(workDir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+		catch (IOException e) {
+			logger.warn("Failed to delete sandbox working directory: {}", workDir, e);
+		}
+	}
+
+	/**
+	 * Find a free local port in the configured range
+	 */
+	private int allocatePort() {
+		int minPort = config.getPortRange().get(0);
+		int maxPort = config.getPortRange().get(1);
+		for (int i = 0; i < 100; i++) { // Try 100 times
+			int port = ThreadLocalRandom.current().nextInt(minPort, maxPort + 1);
+			if (occupiedPorts.add(port)) {
+				try (ServerSocket socket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+					return socket.getLocalPort();
+				}
+				catch (IOException e) {
+					occupiedPorts.remove(port);
+				}
+			}
+		}
+		throw new RuntimeException("No available ports in range " + minPort + "-" + maxPort);
+	}
+
+}
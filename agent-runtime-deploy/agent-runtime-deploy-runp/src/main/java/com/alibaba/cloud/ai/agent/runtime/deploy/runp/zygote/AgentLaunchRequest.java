@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Agent to start in a warm JVM. Either {@code jar} names an executable jar, launched
+ * through its {@code Main-Class} like {@code java -jar}, or {@code mainClass} is run
+ * from the warm JVM's classpath extended by {@code classpath}.
+ *
+ * <p>
+ * Sent over the control sockets in {@link Properties} format, which keeps the warm JVM
+ * free of dependencies and is easy to write from other languages:
+ * {@code jar}, {@code mainClass}, {@code classpath} (path-separator joined),
+ * {@code arg.0..n}, {@code sys.<name>} for system properties, {@code env.<name>} for
+ * environment variables, {@code workDir} and {@code logFile}.
+ *
+ * @param jar executable jar, or null
+ * @param mainClass main class, or null when {@code jar} is set
+ * @param classpath extra classpath entries for {@code mainClass}
+ * @param args program arguments
+ * @param systemProperties system properties set before the agent starts
+ * @param environment environment replacing the warm JVM's, or empty to keep it
+ * @param workDir working directory of the agent, or null to keep the warm JVM's
+ * @param logFile file receiving the agent's stdout and stderr, or null
+ */
+public record AgentLaunchRequest(String jar, String mainClass, List<String> classpath, List<String> args,
+		Map<String, String> systemProperties, Map<String, String> environment, String workDir, String logFile) {
+
+	private static final String ARG_PREFIX = "arg.";
+
+	private static final String SYSTEM_PROPERTY_PREFIX = "sys.";
+
+	private static final String ENVIRONMENT_PREFIX = "env.";
+
+	public AgentLaunchRequest {
+		if ((jar == null) == (mainClass == null)) {
+			throw new IllegalArgumentException("Exactly one of jar and mainClass must be set");
+		}
+		classpath = classpath == null ? List.of() : List.copyOf(classpath);
+		args = args == null ? List.of() : List.copyOf(args);
+		systemProperties = systemProperties == null ? Map.of() : Map.copyOf(systemProperties);
+		environment = environment == null ? Map.of() : Map.copyOf(environment);
+	}
+
+	public static AgentLaunchRequest ofJar(String jar, List<String> args, String logFile) {
+		return new AgentLaunchRequest(jar, null, null, args, null, null, null, logFile);
+	}
+
+	public byte[] encode() {
+		Properties properties = new Properties();
+		putIfPresent(properties, "jar", jar);
+		putIfPresent(properties, "mainClass", mainClass);
+		putIfPresent(properties, "workDir", workDir);
+		putIfPresent(properties, "logFile", logFile);
+		if (!classpath.isEmpty()) {
+			properties.setProperty("classpath", String.join(File.pathSeparator, classpath));
+		}
+		for (int i = 0; i < args.size(); i++) {
+			properties.setProperty(ARG_PREFIX + i, args.get(i));
+		}
+		systemProperties.forEach((key, value) -> properties.setProperty(SYSTEM_PROPERTY_PREFIX + key, value));
+		environment.forEach((key, value) -> properties.setProperty(ENVIRONMENT_PREFIX + key, value));
+		return toBytes(properties);
+	}
+
+	public static AgentLaunchRequest decode(byte[] data) {
+		Properties properties = fromBytes(data);
+		List<String> args = new ArrayList<>();
+		for (int i = 0; properties.containsKey(ARG_PREFIX + i); i++) {
+			args.add(properties.getProperty(ARG_PREFIX + i));
+		}
+		String classpath = properties.getProperty("classpath");
+		return new AgentLaunchRequest(properties.getProperty("jar"), properties.getProperty("mainClass"),
+				classpath == null ? null : List.of(classpath.split(File.pathSeparator)), args,
+				withPrefix(properties, SYSTEM_PROPERTY_PREFIX), withPrefix(properties, ENVIRONMENT_PREFIX),
+				properties.getProperty("workDir"), properties.getProperty("logFile"));
+	}
+
+	private static Map<String, String> withPrefix(Properties properties, String prefix) {
+		Map<String, String> values = new HashMap<>();
+		for (String name : properties.stringPropertyNames()) {
+			if (name.startsWith(prefix)) {
+				values.put(name.substring(prefix.length()), properties.getProperty(name));
+			}
+		}
+		return values;
+	}
+
+	static byte[] toBytes(Properties properties) {
+		StringWriter writer = new StringWriter();
+		try {
+			properties.store(writer, null);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static Properties fromBytes(byte[] data) {
+		Properties properties = new Properties();
+		try {
+			properties.load(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return properties;
+	}
+
+	private static void putIfPresent(Properties properties, String key, String value) {
+		if (value != null) {
+			properties.setProperty(key, value);
+		}
+	}
+
+}
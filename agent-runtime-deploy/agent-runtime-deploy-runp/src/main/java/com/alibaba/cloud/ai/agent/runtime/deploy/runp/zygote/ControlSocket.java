@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * One-shot request/response exchange over a Unix domain socket. The client writes a
+ * request and shuts down its output; the server answers with {@link Properties} holding
+ * either {@code pid} or {@code error}.
+ */
+final class ControlSocket {
+
+	private ControlSocket() {
+	}
+
+	static ServerSocketChannel bind(Path socket) throws IOException {
+		Files.deleteIfExists(socket);
+		ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(socket));
+		return server;
+	}
+
+	static byte[] readRequest(SocketChannel channel) throws IOException {
+		return Channels.newInputStream(channel).readAllBytes();
+	}
+
+	static void reply(SocketChannel channel, String key, String value) throws IOException {
+		Properties response = new Properties();
+		response.setProperty(key, value);
+		write(channel, AgentLaunchRequest.toBytes(response));
+		channel.shutdownOutput();
+	}
+
+	/**
+	 * Send a request and return the pid from the response
+	 */
+	static long call(Path socket, byte[] request) throws IOException {
+		try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+			write(channel, request);
+			channel.shutdownOutput();
+			Properties response = AgentLaunchRequest.fromBytes(Channels.newInputStream(channel).readAllBytes());
+			String pid = response.getProperty("pid");
+			if (pid == null) {
+				throw new IOException("Launch rejected by " + socket + ": " + response.getProperty("error"));
+			}
+			return Long.parseLong(pid);
+		}
+	}
+
+	private static void write(SocketChannel channel, byte[] data) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of a pre-started JVM in the {@link ZygotePool}.
+ *
+ * <p>
+ * The JVM loads the classes of its classpath whose names start with one of the
+ * {@code zygote.preload} prefixes, runs the optional {@code zygote.warmup}
+ * {@link Runnable} to get hot paths compiled, then waits on its control socket for a
+ * single {@link AgentLaunchRequest} and becomes that agent. Agent jars are loaded
+ * parent-first, so Spring, the adapters and anything else already on the warm classpath
+ * are reused instead of loaded again; keep their versions in line with the agent's.
+ *
+ * <p>
+ * The request's environment replaces the one {@link System#getenv} reports, which needs
+ * {@code java.util} opened to the zygote; processes the agent starts still inherit the
+ * pool's. The working directory can't be changed in a running JVM, so {@code user.dir}
+ * is set and Spring Boot is pointed at the config files there, while other relative
+ * file paths keep resolving against the pool's work dir.
+ */
+public final class Zygote {
+
+	static final String PRELOAD_PROPERTY = "zygote.preload";
+
+	static final String WARMUP_PROPERTY = "zygote.warmup";
+
+	/** Lets the zygote replace the environment seen through {@link System#getenv} */
+	static final String ADD_OPENS = "--add-opens=java.base/java.util=ALL-UNNAMED";
+
+	private static final String SPRING_CONFIG_LOCATION = "spring.config.additional-location";
+
+	private Zygote() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 1) {
+			System.err.println("Usage: Zygote <control-socket>");
+			System.exit(2);
+		}
+		Path socket = Paths.get(args[0]);
+
+		long start = System.nanoTime();
+		int preloaded = preload(System.getProperty(PRELOAD_PROPERTY, ""));
+		String warmup = System.getProperty(WARMUP_PROPERTY);
+		if (warmup != null && !warmup.isEmpty()) {
+			((Runnable) Class.forName(warmup).getDeclaredConstructor().newInstance()).run();
+		}
+		System.out.printf("Zygote warmed up in %d ms, %d classes preloaded%n", (System.nanoTime() - start) / 1_000_000,
+				preloaded);
+
+		AgentLaunchRequest request;
+		Method main;
+		try (ServerSocketChannel server = ControlSocket.bind(socket);
+				SocketChannel channel = server.accept()) {
+			try {
+				request = AgentLaunchRequest.decode(ControlSocket.readRequest(channel));
+				main = resolveMain(request);
+				if (!request.environment().isEmpty()) {
+					replaceEnvironment(request.environment());
+				}
+				if (request.workDir() != null && !new File(request.workDir()).isDirectory()) {
+					throw new IllegalArgumentException("Not a directory: " + request.workDir());
+				}
+			}
+			catch (Exception e) {
+				ControlSocket.reply(channel, "error", String.valueOf(e));
+				throw e;
+			}
+			ControlSocket.reply(channel, "pid", String.valueOf(ProcessHandle.current().pid()));
+		}
+		finally {
+			Files.deleteIfExists(socket);
+		}
+
+		if (request.logFile() != null) {
+			PrintStream log = new PrintStream(new FileOutputStream(request.logFile(), true), true);
+			System.setOut(log);
+			System.setErr(log);
+		}
+		request.systemProperties().forEach(System::setProperty);
+		if (request.workDir() != null) {
+			String dir = new File(request.workDir()).getAbsolutePath();
+			System.setProperty("user.dir", dir);
+			if (System.getProperty(SPRING_CONFIG_LOCATION) == null) {
+				System.setProperty(SPRING_CONFIG_LOCATION,
+						"optional:file:" + dir + "/,optional:file:" + dir + "/config/");
+			}
+		}
+		Thread.currentThread().setContextClassLoader(main.getDeclaringClass().getClassLoader());
+		main.invoke(null, (Object) request.args().toArray(new String[0]));
+	}
+
+	/**
+	 * Swap the contents of the map behind {@link System#getenv}
+	 */
+	@SuppressWarnings("unchecked")
+	private static void replaceEnvironment(Map<String, String> environment) throws ReflectiveOperationException {
+		Map<String, String> view = System.getenv();
+		Field field = view.getClass().getDeclaredField("m");
+		field.setAccessible(true);
+		Map<String, String> target = (Map<String, String>) field.get(view);
+		target.clear();
+		target.putAll(environment);
+	}
+
+	/**
+	 * Load the agent's main class without running anything
+	 */
+	private static Method resolveMain(AgentLaunchRequest request) throws Exception {
+		ClassLoader parent = Zygote.class.getClassLoader();
+		String mainClass = request.mainClass();
+		List<URL> urls = new ArrayList<>();
+		if (request.jar() != null) {
+			File jar = new File(request.jar()).getAbsoluteFile();
+			try (JarFile jarFile = new JarFile(jar)) {
+				mainClass = jarFile.getManifest().getMainAttributes().getValue("Main-Class");
+			}
+			if (mainClass == null) {
+				throw new IllegalArgumentException("No Main-Class in " + jar);
+			}
+			urls.add(jar.toURI().toURL());
+		}
+		for (String entry : request.classpath()) {
+			urls.add(new File(entry).getAbsoluteFile().toURI().toURL());
+		}
+		ClassLoader loader = urls.isEmpty() ? parent : new URLClassLoader(urls.toArray(new URL[0]), parent);
+		return Class.forName(mainClass, false, loader).getMethod("main", String[].class);
+	}
+
+	/**
+	 * Load, without initializing, every class on the classpath under the given
+	 * comma-separated package prefixes
+	 */
+	static int preload(String prefixes) throws IOException {
+		List<String> packages = Arrays.stream(prefixes.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList();
+		if (packages.isEmpty()) {
+			return 0;
+		}
+		int loaded = 0;
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			for (String className : listClasses(Paths.get(entry))) {
+				if (packages.stream().anyMatch(className::startsWith)) {
+					try {
+						Class.forName(className, false, Zygote.class.getClassLoader());
+						loaded++;
+					}
+					catch (Throwable e) {
+						// Optional dependencies missing from the classpath
+					}
+				}
+			}
+		}
+		return loaded;
+	}
+
+	private static List<String> listClasses(Path entry) throws IOException {
+		List<String> classes = new ArrayList<>();
+		if (Files.isDirectory(entry)) {
+			try (Stream<Path> paths = Files.walk(entry)) {
+				paths.map(path -> entry.relativize(path).toString().replace(File.separatorChar, '/'))
+					.forEach(name -> addClass(classes, name));
+			}
+		}
+		else if (Files.isRegularFile(entry)) {
+			try (JarFile jar = new JarFile(entry.toFile())) {
+				Enumeration<JarEntry> entries = jar.entries();
+				while (entries.hasMoreElements()) {
+					addClass(classes, entries.nextElement().getName());
+				}
+			}
+		}
+		return classes;
+	}
+
+	private static void addClass(List<String> classes, String name) {
+		if (name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class")
+				&& !name.endsWith("package-info.class")) {
+			classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+		}
+	}
+
+}
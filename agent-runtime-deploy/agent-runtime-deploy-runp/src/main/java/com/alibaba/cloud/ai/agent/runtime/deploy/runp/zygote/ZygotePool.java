@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of pre-started JVMs that have already loaded the agent runtime, so agents start
+ * without paying for JVM boot and class loading.
+ *
+ * <p>
+ * Each warm JVM runs {@link Zygote} and waits on its own control socket. {@link #launch}
+ * hands a request to a warm JVM, which then runs the agent in place, and starts a
+ * replacement in the background. {@link #serve} opens a control socket for other
+ * processes, which the CLI uses when {@code AGENT_RUNTIME_WARM_POOL} points at it.
+ */
+public class ZygotePool implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ZygotePool.class);
+
+	private final ZygotePoolProperties properties;
+
+	private final BlockingQueue<WarmJvm> ready = new LinkedBlockingQueue<>();
+
+	private final AtomicInteger starting = new AtomicInteger();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "zygote-pool");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ServerSocketChannel server;
+
+	private Path controlSocket;
+
+	private volatile boolean closed;
+
+	public ZygotePool(ZygotePoolProperties properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Fill the pool and open the control socket when configured
+	 */
+	public void start() throws IOException {
+		Files.createDirectories(Paths.get(properties.getWorkDir()));
+		refill();
+		if (properties.getControlSocket() != null) {
+			serve(Paths.get(properties.getControlSocket()));
+		}
+		logger.info("Zygote pool started with {} JVM(s) in {}", properties.getPoolSize(), properties.getWorkDir());
+	}
+
+	/**
+	 * Run an agent in a warm JVM, or in a freshly started one when none is ready
+	 * @return the JVM process now running the agent
+	 */
+	public Process launch(AgentLaunchRequest request) throws IOException {
+		long start = System.nanoTime();
+		WarmJvm jvm = takeReady();
+		boolean warm = jvm != null;
+		if (jvm == null) {
+			logger.info("No warm JVM ready, starting one");
+			jvm = startJvm();
+			awaitReady(jvm);
+		}
+		refill();
+
+		try {
+			long pid = ControlSocket.call(jvm.socket(), request.encode());
+			logger.info("Agent {} launched in {} JVM {} in {} ms",
+					request.jar() != null ? request.jar() : request.mainClass(), warm ? "warm" : "cold", pid,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return jvm.process();
+		}
+		catch (IOException e) {
+			jvm.process().destroyForcibly();
+			throw e;
+		}
+	}
+
+	/**
+	 * Number of warm JVMs waiting for an agent
+	 */
+	public int getReadyCount() {
+		return ready.size();
+	}
+
+	/**
+	 * Accept launch requests from other processes on a Unix domain socket. Each
+	 * connection carries one {@link AgentLaunchRequest} and is answered with the pid of
+	 * the agent's JVM.
+	 */
+	public void serve(Path socket) throws IOException {
+		server = ControlSocket.bind(socket);
+		controlSocket = socket;
+		executor.execute(() -> {
+			while (!closed) {
+				try {
+					SocketChannel channel = server.accept();
+					executor.execute(() -> handle(channel));
+				}
+				catch (ClosedChannelException e) {
+					return;
+				}
+				catch (IOException e) {
+					logger.warn("Failed to accept launch request", e);
+				}
+			}
+		});
+		logger.info("Zygote pool accepting launch requests on {}", socket);
+	}
+
+	private void handle(SocketChannel channel) {
+		try (channel) {
+			try {
+				Process process = launch(AgentLaunchRequest.decode(ControlSocket.readRequest(channel)));
+				ControlSocket.reply(channel, "pid", String.valueOf(process.pid()));
+			}
+			catch (Exception e) {
+				logger.error("Failed to launch agent", e);
+				ControlSocket.reply(channel, "error", String.valueOf(e.getMessage()));
+			}
+		}
+		catch (IOException e) {
+			logger.warn("Failed to answer launch request", e);
+		}
+	}
+
+	private WarmJvm takeReady() {
+		WarmJvm jvm;
+		while ((jvm = ready.poll()) != null) {
+			if (jvm.process().isAlive()) {
+				return jvm;
+			}
+			logger.warn("Warm JVM {} died while idle", jvm.process().pid());
+		}
+		return null;
+	}
+
+	/**
+	 * Start JVMs in the background until the pool is full again
+	 */
+	private void refill() {
+		if (closed) {
+			return;
+		}
+		int missing = properties.getPoolSize() - ready.size() - starting.get();
+		for (int i = 0; i < missing; i++) {
+			starting.incrementAndGet();
+			executor.execute(() -> {
+				WarmJvm jvm = null;
+				try {
+					jvm = startJvm();
+					awaitReady(jvm);
+					ready.add(jvm);
+				}
+				catch (Exception e) {
+					logger.warn("Failed to start warm JVM", e);
+					if (jvm != null) {
+						jvm.process().destroyForcibly();
+					}
+				}
+				finally {
+					starting.decrementAndGet();
+				}
+			});
+		}
+	}
+
+	private WarmJvm startJvm() throws IOException {
+		long id = ids.incrementAndGet();
+		Path workDir = Paths.get(properties.getWorkDir()).toAbsolutePath();
+		Path socket = workDir.resolve("zygote-" + ProcessHandle.current().pid() + "-" + id + ".sock");
+
+		List<String> classpath = new ArrayList<>();
+		classpath.add(Paths.get(codeSource()).toString());
+		classpath.addAll(properties.getClasspath());
+
+		List<String> command = new ArrayList<>();
+		command.add(properties.getJavaCommand());
+		command.addAll(properties.getJvmArgs());
+		command.add(Zygote.ADD_OPENS);
+		command.add("-D" + Zygote.PRELOAD_PROPERTY + "=" + String.join(",", properties.getPreloadPackages()));
+		if (properties.getWarmupClass() != null) {
+			command.add("-D" + Zygote.WARMUP_PROPERTY + "=" + properties.getWarmupClass());
+		}
+		command.add("-cp");
+		command.add(String.join(File.pathSeparator, classpath));
+		command.add(Zygote.class.getName());
+		command.add(socket.toString());
+
+		Process process = new ProcessBuilder(command).directory(workDir.toFile())
+			.redirectErrorStream(true)
+			.redirectOutput(ProcessBuilder.Redirect.appendTo(workDir.resolve("zygote-" + id + ".log").toFile()))
+			.start();
+		return new WarmJvm(process, socket);
+	}
+
+	/**
+	 * A warm JVM is ready once it has bound its control socket
+	 */
+	private void awaitReady(WarmJvm jvm) throws IOException {
+		long deadline = System.nanoTime() + properties.getStartTimeout().toNanos();
+		while (!Files.exists(jvm.socket())) {
+			if (!jvm.process().isAlive()) {
+				throw new IOException("Warm JVM exited with code " + jvm.process().exitValue());
+			}
+			if (System.nanoTime() > deadline) {
+				jvm.process().destroyForcibly();
+				throw new IOException("Warm JVM failed to become ready within timeout");
+			}
+			try {
+				Thread.sleep(20);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for warm JVM", e);
+			}
+		}
+	}
+
+	private static URI codeSource() {
+		try {
+			return Zygote.class.getProtectionDomain().getCodeSource().getLocation().toURI();
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Cannot locate the zygote classes", e);
+		}
+	}
+
+	/**
+	 * Stop the control socket and the idle JVMs; launched agents keep running
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			if (server != null) {
+				server.close();
+				Files.deleteIfExists(controlSocket);
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Failed to close control socket", e);
+		}
+		WarmJvm jvm;
+		while ((jvm = ready.poll()) != null) {
+			jvm.process().destroy();
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Run a standalone pool configured by the properties file given as argument
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 1) {
+			System.err.println("Usage: ZygotePool <pool.properties>");
+			System.exit(2);
+		}
+		Properties source = new Properties();
+		try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+			source.load(in);
+		}
+		ZygotePoolProperties properties = ZygotePoolProperties.fromProperties(source);
+		if (properties.getControlSocket() == null) {
+			throw new IllegalArgumentException("control-socket must be set for a standalone pool");
+		}
+		ZygotePool pool = new ZygotePool(properties);
+		Runtime.getRuntime().addShutdownHook(new Thread(pool::close));
+		pool.start();
+		Thread.currentThread().join();
+	}
+
+	private record WarmJvm(Process process, Path socket) {
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Settings of a {@link ZygotePool}. {@link #fromProperties} reads them from keys such
+ * as {@code pool-size} and {@code preload-packages}, lists being comma separated and
+ * the classpath path-separator joined.
+ */
+public class ZygotePoolProperties {
+
+	/**
+	 * Warm JVMs kept waiting for an agent.
+	 */
+	private int poolSize = 2;
+
+	private String javaCommand = "java";
+
+	private List<String> jvmArgs = new ArrayList<>();
+
+	/**
+	 * Classpath of the warm JVMs: the runtime, adapters and their dependencies.
+	 */
+	private List<String> classpath = new ArrayList<>();
+
+	/**
+	 * Package prefixes whose classes are loaded before a JVM counts as warm.
+	 */
+	private List<String> preloadPackages = new ArrayList<>(
+			List.of("org.springframework.", "com.alibaba.cloud.ai.", "com.fasterxml.jackson."));
+
+	/**
+	 * {@link Runnable} run once in every warm JVM, e.g. building a throwaway agent graph
+	 * so the hot paths are compiled before the first real agent.
+	 */
+	private String warmupClass;
+
+	/**
+	 * Working directory of the warm JVMs, also holding their sockets and logs.
+	 */
+	private String workDir = "/tmp/agent-runtime-zygote";
+
+	private Duration startTimeout = Duration.ofSeconds(60);
+
+	/**
+	 * Socket accepting launch requests from other processes such as the CLI, see
+	 * {@link ZygotePool#serve}.
+	 */
+	private String controlSocket;
+
+	public static ZygotePoolProperties fromProperties(Properties source) {
+		ZygotePoolProperties properties = new ZygotePoolProperties();
+		properties.setPoolSize(Integer.parseInt(source.getProperty("pool-size", String.valueOf(properties.poolSize))));
+		properties.setJavaCommand(source.getProperty("java-command", properties.javaCommand));
+		properties.setJvmArgs(list(source.getProperty("jvm-args"), ",", properties.jvmArgs));
+		properties.setClasspath(list(source.getProperty("classpath"), File.pathSeparator, properties.classpath));
+		properties.setPreloadPackages(list(source.getProperty("preload-packages"), ",", properties.preloadPackages));
+		properties.setWarmupClass(source.getProperty("warmup-class"));
+		properties.setWorkDir(source.getProperty("work-dir", properties.workDir));
+		if (source.containsKey("start-timeout")) {
+			properties.setStartTimeout(Duration.parse(source.getProperty("start-timeout")));
+		}
+		properties.setControlSocket(source.getProperty("control-socket"));
+		return properties;
+	}
+
+	private static List<String> list(String value, String separator, List<String> defaults) {
+		if (value == null) {
+			return defaults;
+		}
+		return new ArrayList<>(Arrays.stream(value.split(separator)).map(String::trim).filter(s -> !s.isEmpty()).toList());
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public String getJavaCommand() {
+		return javaCommand;
+	}
+
+	public void setJavaCommand(String javaCommand) {
+		this.javaCommand = javaCommand;
+	}
+
+	public List<String> getJvmArgs() {
+		return jvmArgs;
+	}
+
+	public void setJvmArgs(List<String> jvmArgs) {
+		this.jvmArgs = jvmArgs;
+	}
+
+	public List<String> getClasspath() {
+		return classpath;
+	}
+
+	public void setClasspath(List<String> classpath) {
+		this.classpath = classpath;
+	}
+
+	public List<String> getPreloadPackages() {
+		return preloadPackages;
+	}
+
+	public void setPreloadPackages(List<String> preloadPackages) {
+		this.preloadPackages = preloadPackages;
+	}
+
+	public String getWarmupClass() {
+		return warmupClass;
+	}
+
+	public void setWarmupClass(String warmupClass) {
+		this.warmupClass = warmupClass;
+	}
+
+	public String getWorkDir() {
+		return workDir;
+	}
+
+	public void setWorkDir(String workDir) {
+		this.workDir = workDir;
+	}
+
+	public Duration getStartTimeout() {
+		return startTimeout;
+	}
+
+	public void setStartTimeout(Duration startTimeout) {
+		this.startTimeout = startTimeout;
+	}
+
+	public String getControlSocket() {
+		return controlSocket;
+	}
+
+	public void setControlSocket(String controlSocket) {
+		this.controlSocket = controlSocket;
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgentLaunchRequestTest {
+
+	@Test
+	void encodeDecodeRoundTrip() {
+		AgentLaunchRequest request = new AgentLaunchRequest(null, "com.example.Agent",
+				List.of("/tmp/代理 dir/lib.jar", "/opt/classes"), List.of("--server.port=8080", "a b", "#!:=", "多行\n参数"),
+				Map.of("spring.profiles.active", "dev", "path.with=equals", "x:y"),
+				Map.of("PATH", "/usr/bin:/bin", "GREETING", " leading space\ttab", "LANG", "zh_CN.UTF-8"),
+				"/home/用户/project", "/tmp/代理 dir/agent.log");
+
+		AgentLaunchRequest decoded = AgentLaunchRequest.decode(request.encode());
+
+		assertEquals(request, decoded);
+		assertNull(decoded.jar());
+	}
+
+	@Test
+	void encodeDecodeEmptyRequest() {
+		AgentLaunchRequest request = AgentLaunchRequest.ofJar("/tmp/agent.jar", List.of(), null);
+
+		AgentLaunchRequest decoded = AgentLaunchRequest.decode(request.encode());
+
+		assertEquals(request, decoded);
+		assertTrue(decoded.environment().isEmpty());
+		assertNull(decoded.workDir());
+	}
+
+	/**
+	 * Requests as the CLI writes them: UTF-8 as is, only the characters Properties
+	 * requires escaped
+	 */
+	@Test
+	void decodeHandWrittenRequest() {
+		String text = """
+				jar=/tmp/代理 dir/agent.jar
+				workDir=/home/用户/project
+				logFile=logs/agent.log
+				arg.0=--server.port=8080
+				arg.1=多行\\n参数
+				env.GREETING=\\ hello\\tworld
+				env.WINDOWS\\=STYLE=C:\\\\temp
+				sys.user.name=张三
+				""";
+
+		AgentLaunchRequest request = AgentLaunchRequest.decode(text.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("/tmp/代理 dir/agent.jar", request.jar());
+		assertEquals("/home/用户/project", request.workDir());
+		assertEquals("logs/agent.log", request.logFile());
+		assertEquals(List.of("--server.port=8080", "多行\n参数"), request.args());
+		assertEquals(Map.of("GREETING", " hello\tworld", "WINDOWS=STYLE", "C:\\temp"), request.environment());
+		assertEquals(Map.of("user.name", "张三"), request.systemProperties());
+		assertTrue(request.classpath().isEmpty());
+	}
+
+}
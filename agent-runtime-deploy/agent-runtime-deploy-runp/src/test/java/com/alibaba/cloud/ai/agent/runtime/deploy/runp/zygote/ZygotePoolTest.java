@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.deploy.runp.zygote;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts real warm JVMs running the test classes, and hands them {@link EchoAgent}.
+ */
+class ZygotePoolTest {
+
+	@TempDir
+	Path temp;
+
+	private ZygotePool pool;
+
+	@AfterEach
+	void tearDown() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	@Test
+	void launchRunsAgentInWarmJvm() throws Exception {
+		start();
+		await(() -> pool.getReadyCount() == 1);
+		Path workDir = Files.createDirectories(temp.resolve("work dir"));
+		Path output = temp.resolve("output.txt");
+
+		Process process = pool.launch(new AgentLaunchRequest(null, EchoAgent.class.getName(), null,
+				List.of(output.toString(), "--name=代理"), Map.of("agent.mode", "test"),
+				Map.of("AGENT_GREETING", "hello"), workDir.toString(), null));
+
+		assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+		assertEquals(0, process.exitValue());
+		assertEquals(List.of("--name=代理", "hello", "null", workDir.toString(), "test"),
+				Files.readAllLines(output, StandardCharsets.UTF_8));
+		await(() -> pool.getReadyCount() == 1);
+	}
+
+	@Test
+	void launchRejectsMissingWorkDir() throws Exception {
+		start();
+		await(() -> pool.getReadyCount() == 1);
+
+		assertThrows(IOException.class, () -> pool.launch(new AgentLaunchRequest(null, EchoAgent.class.getName(),
+				null, List.of(), null, null, temp.resolve("missing").toString(), null)));
+		await(() -> pool.getReadyCount() == 1);
+	}
+
+	private void start() throws IOException {
+		ZygotePoolProperties properties = new ZygotePoolProperties();
+		properties.setPoolSize(1);
+		properties.setJavaCommand(ProcessHandle.current().info().command().orElse("java"));
+		properties.setClasspath(List.of(testClasses()));
+		properties.setPreloadPackages(List.of());
+		properties.setWorkDir(temp.resolve("pool").toString());
+		properties.setStartTimeout(Duration.ofSeconds(30));
+		pool = new ZygotePool(properties);
+		pool.start();
+	}
+
+	private static String testClasses() {
+		try {
+			return Paths.get(EchoAgent.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 30s");
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * Writes what it was launched with to the file named by its first argument
+	 */
+	public static final class EchoAgent {
+
+		public static void main(String[] args) throws IOException {
+			Files.write(Paths.get(args[0]),
+					List.of(args[1], System.getenv("AGENT_GREETING"), String.valueOf(System.getenv("HOME")),
+							System.getProperty("user.dir"), System.getProperty("agent.mode")),
+					StandardCharsets.UTF_8);
+		}
+
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runtime hosting sandbox servers, e.g. Docker, local processes or Kubernetes.
+ *
+ * <p>
+ * {@code ContainerService} drives every backend through the same lifecycle, so session
+ * handling, reaping and metrics built on top of it work for all of them. Backends fill
+ * in the {@link ContainerModel} as the instance progresses; an address may only be known
+ * once the instance runs. Failures are reported as unchecked exceptions.
+ */
+public interface SandboxBackend extends AutoCloseable {
+
+	/**
+	 * Connect to the runtime, called once before any other method
+	 */
+	void init();
+
+	/**
+	 * Provision an instance for the session without starting it
+	 */
+	ContainerModel create(String sessionId, SandboxType sandboxType);
+
+	/**
+	 * Start a created instance
+	 */
+	void start(ContainerModel container);
+
+	/**
+	 * Block until the sandbox server accepts requests, or fail after the backend's start
+	 * timeout
+	 */
+	void awaitReady(ContainerModel container);
+
+	/**
+	 * Stop the instance
+	 */
+	void stop(ContainerModel container);
+
+	/**
+	 * Release the instance and everything allocated to it. Must tolerate instances that
+	 * never started or are already gone.
+	 */
+	void remove(ContainerModel container);
+
+	/**
+	 * Current state of the instance
+	 */
+	SandboxState inspect(ContainerModel container);
+
+	/**
+	 * Register a listener for state changes the backend observes by itself, such as a
+	 * sandbox server that crashed
+	 */
+	void addListener(Consumer<SandboxEvent> listener);
+
+	/**
+	 * Backend specific state to report on the health endpoint, such as image pulls in
+	 * progress
+	 */
+	default Map<String, Object> getStatus() {
+		return Map.of();
+	}
+
+	@Override
+	void close();
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Persistent WebSocket channel to a sandbox server.
+ *
+ * <p>
+ * Many concurrent requests share one connection and are matched to their responses by
+ * correlation ID. The bearer token is sent once during the handshake. Frames are JSON
+ * text messages:
+ * <ul>
+ * <li>client: {@code {"id", "type": "request" | "stream", "endpoint", "payload"}}</li>
+ * <li>server: {@code {"id", "type": "response" | "end", "status", "body"}} and
+ * {@code {"id", "type": "chunk", "data"}} for streamed output</li>
+ * </ul>
+ */
+public class SandboxChannel implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SandboxChannel.class);
+
+	private static final String CHANNEL_PATH = "/ws";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+	private final AtomicLong idGenerator = new AtomicLong();
+
+	private final Object sendLock = new Object();
+
+	private WebSocket webSocket;
+
+	private CompletableFuture<WebSocket> lastSend;
+
+	private volatile boolean closed = false;
+
+	private SandboxChannel() {
+	}
+
+	/**
+	 * Open a channel to the sandbox server at the given base URL
+	 */
+	public static SandboxChannel connect(String baseUrl, String bearerToken) {
+		SandboxChannel channel = new SandboxChannel();
+		URI uri = URI.create(baseUrl.replaceFirst("^http", "ws") + CHANNEL_PATH);
+
+		WebSocket.Builder builder = HttpClient.newHttpClient()
+			.newWebSocketBuilder()
+			.connectTimeout(Duration.ofSeconds(10));
+		if (bearerToken != null && !bearerToken.isEmpty()) {
+			builder.header("Authorization", "Bearer " + bearerToken);
+		}
+
+		try {
+			channel.webSocket = builder.buildAsync(uri, channel.new FrameListener()).join();
+			channel.lastSend = CompletableFuture.completedFuture(channel.webSocket);
+			logger.debug("Sandbox channel connected: {}", uri);
+			return channel;
+		}
+		catch (Exception e) {
+			throw new SandboxClientException("Failed to open sandbox channel to " + uri, e);
+		}
+	}
+
+	/**
+	 * Send a request and complete with the response body
+	 */
+	public <T> CompletableFuture<T> request(String endpoint, Object payload, TypeReference<T> typeReference) {
+		return send("request", endpoint, payload, new PendingRequest(null))
+			.thenApply(body -> objectMapper.convertValue(body, typeReference));
+	}
+
+	/**
+	 * Send a streaming request. Each chunk pushed by the server is handed to
+	 * {@code onChunk}; the returned future completes with the final body.
+	 */
+	public CompletableFuture<JsonNode> stream(String endpoint, Object payload, Consumer<JsonNode> onChunk) {
+		return send("stream", endpoint, payload, new PendingRequest(onChunk));
+	}
+
+	/**
+	 * Whether the channel can still carry requests
+	 */
+	public boolean isOpen() {
+		return !closed && webSocket != null && !webSocket.isOutputClosed() && !webSocket.isInputClosed();
+	}
+
+	private CompletableFuture<JsonNode> send(String type, String endpoint, Object payload, PendingRequest pending) {
+		if (!isOpen()) {
+			return CompletableFuture.failedFuture(new SandboxClientException("Sandbox channel is closed"));
+		}
+
+		String id = Long.toString(idGenerator.incrementAndGet());
+		ObjectNode frame = objectMapper.createObjectNode();
+		frame.put("id", id);
+		frame.put("type", type);
+		frame.put("endpoint", endpoint);
+		frame.set("payload", objectMapper.valueToTree(payload));
+
+		String text;
+		try {
+			text = objectMapper.writeValueAsString(frame);
+		}
+		catch (Exception e) {
+			return CompletableFuture.failedFuture(new SandboxClientException("Failed to encode channel frame", e));
+		}
+
+		pendingRequests.put(id, pending);
+
+		// WebSocket allows a single outstanding send, so frames are chained
+		synchronized (sendLock) {
+			lastSend = lastSend.handle((ws, ex) -> webSocket).thenCompose(ws -> ws.sendText(text, true));
+			lastSend.whenComplete((ws, ex) -> {
+				if (ex != null) {
+					failPending(id, ex);
+				}
+			});
+		}
+		return pending.future;
+	}
+
+	private void handleFrame(String text) {
+		JsonNode frame;
+		try {
+			frame = objectMapper.readTree(text);
+		}
+		catch (Exception e) {
+			logger.warn("Discarding malformed channel frame", e);
+			return;
+		}
+
+		String id = frame.path("id").asText();
+		String type = frame.path("type").asText();
+		PendingRequest pending = pendingRequests.get(id);
+		if (pending == null) {
+			logger.debug("No pending request for channel frame: {}", id);
+			return;
+		}
+
+		if ("chunk".equals(type)) {
+			if (pending.onChunk != null) {
+				pending.onChunk.accept(frame.path("data"));
+			}
+			return;
+		}
+
+		pendingRequests.remove(id);
+		int status = frame.path("status").asInt(200);
+		JsonNode body = frame.path("body");
+		if (status >= 200 && status < 300) {
+			pending.future.complete(body);
+		}
+		else {
+			pending.future.completeExceptionally(new SandboxClientException(
+					String.format("Request failed with status %d: %s", status, body.toString()), status));
+		}
+	}
+
+	private void failPending(String id, Throwable cause) {
+		PendingRequest pending = pendingRequests.remove(id);
+		if (pending != null) {
+			pending.future.completeExceptionally(new SandboxClientException("Sandbox channel send failed", cause));
+		}
+	}
+
+	private void failAll(Throwable cause) {
+		closed = true;
+		for (String id : pendingRequests.keySet()) {
+			PendingRequest pending = pendingRequests.remove(id);
+			if (pending != null) {
+				pending.future.completeExceptionally(cause);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (webSocket != null) {
+			webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "closed").exceptionally(ex -> null);
+		}
+		failAll(new SandboxClientException("Sandbox channel closed"));
+	}
+
+	/**
+	 * Request awaiting its response frame
+	 */
+	private static class PendingRequest {
+
+		private final CompletableFuture<JsonNode> future = new CompletableFuture<>();
+
+		private final Consumer<JsonNode> onChunk;
+
+		PendingRequest(Consumer<JsonNode> onChunk) {
+			this.onChunk = onChunk;
+		}
+
+	}
+
+	/**
+	 * Reassembles partial text messages and dispatches complete frames
+	 */
+	private class FrameListener implements WebSocket.Listener {
+
+		private final StringBuilder buffer = new StringBuilder();
+
+		@Override
+		public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+			buffer.append(data);
+			if (last) {
+				String text = buffer.toString();
+				buffer.setLength(0);
+				handleFrame(text);
+			}
+			webSocket.request(1);
+			return null;
+		}
+
+		@Override
+		public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+			logger.debug("Sandbox channel closed by server: {} {}", statusCode, reason);
+			failAll(new SandboxClientException("Sandbox channel closed by server: " + reason));
+			return null;
+		}
+
+		@Override
+		public void onError(WebSocket webSocket, Throwable error) {
+			logger.warn("Sandbox channel error", error);
+			failAll(new SandboxClientException("Sandbox channel error", error));
+		}
+
+	}
+
+}
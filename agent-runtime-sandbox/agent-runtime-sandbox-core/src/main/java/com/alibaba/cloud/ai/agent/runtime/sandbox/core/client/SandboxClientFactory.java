@@ -22,10 +22,14 @@ package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.service.ContainerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Factory for creating sandbox clients
  */
@@ -35,11 +39,21 @@ public class SandboxClientFactory {
 
 	private final SandboxManagerClient managerClient;
 
+	private final SandboxProperties properties;
+
 	/**
 	 * Constructor
 	 */
 	public SandboxClientFactory(ContainerService containerService) {
+		this(containerService, new SandboxProperties());
+	}
+
+	/**
+	 * Constructor with sandbox properties
+	 */
+	public SandboxClientFactory(ContainerService containerService, SandboxProperties properties) {
 		this.managerClient = new SandboxManagerClient(containerService);
+		this.properties = properties;
 	}
 
 	/**
@@ -64,7 +78,27 @@ public class SandboxClientFactory {
 		// Create HTTP client for the container
 		SandboxHttpClient httpClient = new SandboxHttpClient(container);
 
-		return new SandboxSession(container, httpClient, managerClient);
+		return openSession(container, httpClient);
+	}
+
+	/**
+	 * Create a replica set of {@code replicas} sessions for load balancing stateless
+	 * tool calls
+	 */
+	public SandboxReplicaSet createReplicaSet(SandboxType sandboxType, int replicas) {
+		logger.info("Creating sandbox replica set with type: {}, replicas: {}", sandboxType, replicas);
+
+		List<SandboxSession> sessions = new ArrayList<>(replicas);
+		try {
+			for (int i = 0; i < replicas; i++) {
+				sessions.add(createSession(sandboxType));
+			}
+		}
+		catch (RuntimeException e) {
+			sessions.forEach(SandboxSession::close);
+			throw e;
+		}
+		return new SandboxReplicaSet(sessions);
 	}
 
 	/**
@@ -80,7 +114,27 @@ public class SandboxClientFactory {
 
 		SandboxHttpClient httpClient = new SandboxHttpClient(container);
 
-		return new SandboxSession(container, httpClient, managerClient);
+		return openSession(container, httpClient);
+	}
+
+	/**
+	 * Build the session, opening its channel and enabling call coalescing when configured
+	 */
+	private SandboxSession openSession(ContainerModel container, SandboxHttpClient httpClient) {
+		SandboxSession session = new SandboxSession(container, httpClient, managerClient);
+		if (properties.isChannelEnabled()) {
+			try {
+				session.openChannel();
+			}
+			catch (SandboxClientException e) {
+				logger.warn("Failed to open channel for session: {}, falling back to HTTP", container.getSessionId(),
+						e);
+			}
+		}
+		if (properties.isCoalescingEnabled()) {
+			session.enableCoalescing(properties.getCoalescingWindow(), properties.getCoalescingMaxBatchSize());
+		}
+		return session;
 	}
 
 	/**
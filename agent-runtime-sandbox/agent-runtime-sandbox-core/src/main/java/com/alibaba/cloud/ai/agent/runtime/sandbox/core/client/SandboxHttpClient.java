@@ -20,29 +20,56 @@
 package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
 
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxToolException;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ExecutionResult;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCall;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCallResult;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.transport.UnixSocket;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.DefaultHttpClientConnectionOperator;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * HTTP client for communicating with sandbox server
@@ -51,6 +78,17 @@ public class SandboxHttpClient implements AutoCloseable {
 
 	private static final Logger logger = LoggerFactory.getLogger(SandboxHttpClient.class);
 
+	private static final long STREAMING_THRESHOLD = 256 * 1024;
+
+	/**
+	 * Tool lists by sandbox image, shared by all clients. Sandboxes of one image serve
+	 * the same tools, so a new session revalidates the cached list instead of
+	 * downloading it again.
+	 */
+	private static final Map<String, CachedTools> TOOLS_CACHE = new ConcurrentHashMap<>();
+
+	private static final long TOOLS_FRESH_MILLIS = 30_000;
+
 	private final String baseUrl;
 
 	private final String bearerToken;
@@ -59,14 +97,25 @@ public class SandboxHttpClient implements AutoCloseable {
 
 	private final ObjectMapper objectMapper;
 
+	private final String toolsCacheKey;
+
+	private final String kernelId;
+
+	private volatile long toolsValidatedAt;
+
+	private volatile SandboxChannel channel;
+
 	/**
 	 * Constructor with container model
 	 */
 	public SandboxHttpClient(ContainerModel containerModel) {
 		this.baseUrl = containerModel.getBaseUrl();
 		this.bearerToken = containerModel.getBearerToken();
-		this.httpClient = HttpClients.createDefault();
+		this.httpClient = containerModel.getSocketPath() != null ? createUnixSocketClient(containerModel.getSocketPath())
+				: HttpClients.createDefault();
 		this.objectMapper = new ObjectMapper();
+		this.toolsCacheKey = containerModel.getImageName() != null ? containerModel.getImageName() : baseUrl;
+		this.kernelId = containerModel.getKernelId();
 	}
 
 	/**
@@ -77,10 +126,60 @@ public class SandboxHttpClient implements AutoCloseable {
 		this.bearerToken = bearerToken;
 		this.httpClient = HttpClients.createDefault();
 		this.objectMapper = new ObjectMapper();
+		this.toolsCacheKey = baseUrl;
+		this.kernelId = null;
+	}
+
+	/**
+	 * Create an HTTP client whose connections all go to the given Unix domain socket
+	 */
+	private static CloseableHttpClient createUnixSocketClient(String socketPath) {
+		DefaultHttpClientConnectionOperator operator = new DefaultHttpClientConnectionOperator(
+				proxy -> UnixSocket.get(socketPath), null, null, RegistryBuilder.<TlsSocketStrategy>create().build());
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(operator,
+				PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO, TimeValue.NEG_ONE_MILLISECOND, null);
+		return HttpClients.custom().setConnectionManager(connectionManager).build();
 	}
 
-	public List toolsList() {
-		return executeRequest("/tools/list", Map.of(), new TypeReference<>() {});
+	/**
+	 * List the tools of the sandbox. The list is cached per image: it is served locally
+	 * when this client validated it recently, and revalidated with its entity tag
+	 * otherwise, which costs an empty 304 while the tools are unchanged.
+	 */
+	public List<Object> toolsList() {
+		CachedTools cached = TOOLS_CACHE.get(toolsCacheKey);
+		if (cached != null && System.currentTimeMillis() - toolsValidatedAt < TOOLS_FRESH_MILLIS) {
+			return cached.tools();
+		}
+
+		try {
+			HttpPost request = new HttpPost(new URI(baseUrl + "/tools/list"));
+			if (bearerToken != null && !bearerToken.isEmpty()) {
+				request.setHeader("Authorization", "Bearer " + bearerToken);
+			}
+			if (cached != null) {
+				request.setHeader(HttpHeaders.IF_NONE_MATCH, cached.etag());
+			}
+			request.setEntity(toJsonEntity(Map.of()));
+
+			try (CloseableHttpResponse response = httpClient.execute(request)) {
+				if (response.getCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+					EntityUtils.consume(response.getEntity());
+					toolsValidatedAt = System.currentTimeMillis();
+					return cached.tools();
+				}
+				List<Object> tools = handleResponse(response, new TypeReference<>() {});
+				Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+				if (etag != null) {
+					TOOLS_CACHE.put(toolsCacheKey, new CachedTools(etag.getValue(), Collections.unmodifiableList(tools)));
+					toolsValidatedAt = System.currentTimeMillis();
+				}
+				return tools;
+			}
+		}
+		catch (URISyntaxException | IOException e) {
+			throw new SandboxClientException("Failed to execute request to /tools/list", e);
+		}
 	}
 
 	/**
@@ -97,6 +196,7 @@ public class SandboxHttpClient implements AutoCloseable {
 		Map<String, Object> payload = new HashMap<>();
 		payload.put("code", code);
 		payload.put("split_output", splitOutput);
+		putKernelId(payload);
 
 		return executeRequest("/tools/run_ipython_cell", payload, new TypeReference<>() {});
 	}
@@ -115,10 +215,60 @@ public class SandboxHttpClient implements AutoCloseable {
 		Map<String, Object> payload = new HashMap<>();
 		payload.put("command", command);
 		payload.put("split_output", splitOutput);
+		putKernelId(payload);
 
 		return executeRequest("/tools/run_shell_command", payload, new TypeReference<>() {});
 	}
 
+	/**
+	 * Execute shell command and stream its output over the sandbox channel
+	 */
+	public ExecutionResult runShellCommandStreaming(String command, Consumer<ExecutionResult.TextContent> onOutput) {
+		SandboxChannel current = channel;
+		if (current == null || !current.isOpen()) {
+			throw new SandboxClientException("Streaming requires an open sandbox channel");
+		}
+
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("command", command);
+		payload.put("split_output", true);
+		putKernelId(payload);
+
+		try {
+			JsonNode body = current
+				.stream("/tools/run_shell_command", payload,
+						chunk -> onOutput.accept(objectMapper.convertValue(chunk, ExecutionResult.TextContent.class)))
+				.join();
+			return objectMapper.convertValue(body, ExecutionResult.class);
+		}
+		catch (CompletionException e) {
+			throw unwrap("/tools/run_shell_command", e);
+		}
+	}
+
+	/**
+	 * Start an IPython kernel with its own working directory in a shared sandbox
+	 */
+	public void startKernel(String kernelId) {
+		executeRequest("/kernels/start", Map.of("kernel_id", kernelId), new TypeReference<Map<String, Object>>() {});
+	}
+
+	/**
+	 * Shut down a kernel and remove its working directory
+	 */
+	public void shutdownKernel(String kernelId) {
+		executeRequest("/kernels/shutdown", Map.of("kernel_id", kernelId), new TypeReference<Map<String, Object>>() {});
+	}
+
+	/**
+	 * Route the request to the session's kernel when the sandbox is shared
+	 */
+	private void putKernelId(Map<String, Object> payload) {
+		if (kernelId != null) {
+			payload.put("kernel_id", kernelId);
+		}
+	}
+
 	/**
 	 * MCP
 	 * @param name tool name
@@ -126,16 +276,105 @@ public class SandboxHttpClient implements AutoCloseable {
 	 * @return result
 	 */
 	public Object call(String name, Map<String, Object> args) {
-		try {
-			Map<String, Object> payload = new HashMap<>();
-			payload.put("args", objectMapper.writeValueAsString(args));
-			payload.put("name", name);
+		ToolResult result = callTool(name, args);
+		if (result.isError()) {
+			throw new SandboxToolException("Tool call failed: " + name + ": " + describe(result));
+		}
+		return result.getContent();
+	}
+
+	/**
+	 * Call an MCP tool and return its typed result. Tool errors are reported through
+	 * {@link ToolResult#isError()} rather than thrown.
+	 * @param name tool name
+	 * @param args arguments
+	 * @return result
+	 */
+	public ToolResult callTool(String name, Map<String, Object> args) {
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("name", name);
+		payload.put("args", args != null ? args : Map.of());
 
-			return executeRequest("/tools/call", payload, new TypeReference<>() {});
-		}catch (Exception ex){
-			throw new SandboxClientException("Failed to execute request to /tools/call", ex);
+		return executeRequest("/tools/call", payload, new TypeReference<>() {});
+	}
+
+	private String describe(ToolResult result) {
+		if (result.getContent() == null) {
+			return "";
+		}
+		StringBuilder text = new StringBuilder();
+		for (ToolResult.Content content : result.getContent()) {
+			if (content.getText() != null) {
+				text.append(content.getText());
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Execute several MCP tool calls in one request. Results are returned in call
+	 * order; a failed call yields an error entry instead of failing the batch.
+	 * @param calls tool calls
+	 * @return one result per call
+	 */
+	public List<ToolCallResult> callBatch(List<ToolCall> calls) {
+		return executeRequest("/tools/call_batch", encodeBatch(calls), new TypeReference<>() {});
+	}
+
+	/**
+	 * Execute several MCP tool calls in one request, handing each result to
+	 * {@code onResult} as soon as it completes. Results carry the index of their call.
+	 * @param calls tool calls
+	 * @param onResult result consumer
+	 */
+	public void callBatchStreaming(List<ToolCall> calls, Consumer<ToolCallResult> onResult) {
+		String endpoint = "/tools/call_batch/stream";
+		try {
+			HttpPost request = new HttpPost(new URI(baseUrl + endpoint));
+			if (bearerToken != null && !bearerToken.isEmpty()) {
+				request.setHeader("Authorization", "Bearer " + bearerToken);
+			}
+			request.setHeader("Accept", "application/x-ndjson");
+			request.setEntity(toJsonEntity(encodeBatch(calls)));
+
+			httpClient.execute(request, response -> {
+				if (response.getCode() < 200 || response.getCode() >= 300) {
+					String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : "";
+					throw new SandboxClientException(
+							String.format("Request failed with status %d: %s", response.getCode(), body),
+							response.getCode());
+				}
+				try (BufferedReader reader = new BufferedReader(
+						new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (!line.isBlank()) {
+							onResult.accept(objectMapper.readValue(line, ToolCallResult.class));
+						}
+					}
+				}
+				return null;
+			});
+		}
+		catch (URISyntaxException | IOException e) {
+			throw new SandboxClientException("Failed to execute request to " + endpoint, e);
 		}
+	}
 
+	/**
+	 * Encode batch calls
+	 */
+	private Map<String, Object> encodeBatch(List<ToolCall> calls) {
+		List<Map<String, Object>> encoded = new ArrayList<>(calls.size());
+		for (ToolCall toolCall : calls) {
+			Map<String, Object> entry = new HashMap<>();
+			entry.put("name", toolCall.getName());
+			entry.put("args", toolCall.getArgs() != null ? toolCall.getArgs() : Map.of());
+			encoded.add(entry);
+		}
+		Map<String, Object> payload = new HashMap<>();
+		payload.put("calls", encoded);
+		return payload;
 	}
 
 	/**
@@ -159,10 +398,34 @@ public class SandboxHttpClient implements AutoCloseable {
 		return executeGetRequest("/health", new TypeReference<>() {});
 	}
 
+	/**
+	 * Route subsequent POST requests over a persistent channel
+	 */
+	public void attachChannel(SandboxChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Get the attached channel, if any
+	 */
+	public SandboxChannel getChannel() {
+		return channel;
+	}
+
 	/**
 	 * Execute POST request
 	 */
 	private <T> T executeRequest(String endpoint, Object payload, TypeReference<T> typeReference) {
+		SandboxChannel current = channel;
+		if (current != null && current.isOpen()) {
+			try {
+				return current.request(endpoint, payload, typeReference).join();
+			}
+			catch (CompletionException e) {
+				throw unwrap(endpoint, e);
+			}
+		}
+
 		try {
 			String url = baseUrl + endpoint;
 			HttpPost request = new HttpPost(new URI(url));
@@ -174,10 +437,9 @@ public class SandboxHttpClient implements AutoCloseable {
 			request.setHeader("Content-Type", "application/json");
 
 			// Set request body
-			String jsonPayload = objectMapper.writeValueAsString(payload);
-			request.setEntity(new StringEntity(jsonPayload, ContentType.APPLICATION_JSON));
+			request.setEntity(toJsonEntity(payload));
 
-			logger.debug("Executing request: {} with payload: {}", url, jsonPayload);
+			logger.debug("Executing request: {}", url);
 
 			try (CloseableHttpResponse response = httpClient.execute(request)) {
 				return handleResponse(response, typeReference);
@@ -189,6 +451,56 @@ public class SandboxHttpClient implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Build a JSON request entity. Small payloads are encoded once into a buffer, large
+	 * ones such as file contents are written straight to the connection.
+	 */
+	private HttpEntity toJsonEntity(Object payload) throws JsonProcessingException {
+		if (estimateSize(payload, 0) < STREAMING_THRESHOLD) {
+			return new ByteArrayEntity(objectMapper.writeValueAsBytes(payload), ContentType.APPLICATION_JSON);
+		}
+		return new EntityTemplate(-1, ContentType.APPLICATION_JSON, null,
+				outputStream -> objectMapper.writeValue(outputStream, payload));
+	}
+
+	/**
+	 * Rough encoded size of a payload, stops counting at the streaming threshold
+	 */
+	private static long estimateSize(Object value, long size) {
+		if (size >= STREAMING_THRESHOLD) {
+			return size;
+		}
+		if (value instanceof CharSequence text) {
+			return size + text.length();
+		}
+		if (value instanceof byte[] bytes) {
+			return size + bytes.length * 4L / 3;
+		}
+		if (value instanceof Map<?, ?> map) {
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				size = estimateSize(entry.getValue(), estimateSize(entry.getKey(), size));
+			}
+			return size;
+		}
+		if (value instanceof Collection<?> collection) {
+			for (Object item : collection) {
+				size = estimateSize(item, size);
+			}
+			return size;
+		}
+		return size + 16;
+	}
+
+	/**
+	 * Unwrap a failed channel request
+	 */
+	private SandboxClientException unwrap(String endpoint, CompletionException e) {
+		if (e.getCause() instanceof SandboxClientException sandboxClientException) {
+			return sandboxClientException;
+		}
+		return new SandboxClientException("Failed to execute channel request to " + endpoint, e.getCause());
+	}
+
 	/**
 	 * Execute GET request
 	 */
@@ -230,7 +542,7 @@ public class SandboxHttpClient implements AutoCloseable {
 			}
 			else {
 				throw new SandboxClientException(
-						String.format("Request failed with status %d: %s", statusCode, responseBody));
+						String.format("Request failed with status %d: %s", statusCode, responseBody), statusCode);
 			}
 
 		}
@@ -255,9 +567,18 @@ public class SandboxHttpClient implements AutoCloseable {
 
 	@Override
 	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
 		if (httpClient != null) {
 			httpClient.close();
 		}
 	}
 
+	/**
+	 * Tool list with the entity tag it was served with
+	 */
+	private record CachedTools(String etag, List<Object> tools) {
+	}
+
 }
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A logical tool endpoint backed by several sandbox sessions of the same type.
+ *
+ * <p>
+ * Only meant for stateless tools: each call may land on a different replica. Calls are
+ * balanced with power-of-two-choices on outstanding requests. A replica failing
+ * {@code maxFailures} calls in a row with no response, a timeout or a server error is
+ * ejected for {@code ejectCooldown}. Once it elapses, the next call goes to the replica as
+ * a single trial: an answer readmits it, another failure ejects it again. Rejected
+ * requests and tool errors do not count as failures.
+ */
+public class SandboxReplicaSet implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SandboxReplicaSet.class);
+
+	private static final int DEFAULT_MAX_FAILURES = 3;
+
+	private static final Duration DEFAULT_EJECT_COOLDOWN = Duration.ofSeconds(30);
+
+	private final List<Replica> replicas;
+
+	private final int maxFailures;
+
+	private final long ejectCooldownMillis;
+
+	/**
+	 * Constructor
+	 */
+	public SandboxReplicaSet(List<SandboxSession> sessions) {
+		this(sessions, DEFAULT_MAX_FAILURES, DEFAULT_EJECT_COOLDOWN);
+	}
+
+	/**
+	 * Constructor with ejection settings
+	 */
+	public SandboxReplicaSet(List<SandboxSession> sessions, int maxFailures, Duration ejectCooldown) {
+		if (sessions == null || sessions.isEmpty()) {
+			throw new IllegalArgumentException("Replica set requires at least one session");
+		}
+		this.replicas = sessions.stream().map(Replica::new).toList();
+		this.maxFailures = maxFailures;
+		this.ejectCooldownMillis = ejectCooldown.toMillis();
+	}
+
+	/**
+	 * Call a stateless tool on one of the replicas
+	 */
+	public Object call(String name, Map<String, Object> args) {
+		Replica replica = claimTrial();
+		boolean trial = replica != null;
+		if (!trial) {
+			replica = select();
+		}
+		replica.outstanding.incrementAndGet();
+		try {
+			Object result = replica.session.call(name, args);
+			succeeded(replica, trial);
+			return result;
+		}
+		catch (SandboxClientException e) {
+			if (!e.isSandboxFailure()) {
+				// The replica answered, the request or the tool was at fault
+				succeeded(replica, trial);
+			}
+			else if (trial) {
+				replica.ejectedUntil = System.currentTimeMillis() + ejectCooldownMillis;
+			}
+			else {
+				recordFailure(replica);
+			}
+			throw e;
+		}
+		finally {
+			replica.outstanding.decrementAndGet();
+			if (trial) {
+				replica.trialInFlight.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Pick the less loaded of two random available replicas
+	 */
+	private Replica select() {
+		List<Replica> available = new ArrayList<>(replicas.size());
+		for (Replica replica : replicas) {
+			if (!replica.session.isClosed() && replica.ejectedUntil == 0) {
+				available.add(replica);
+			}
+		}
+		if (available.isEmpty()) {
+			throw new SandboxClientException("No healthy replica available");
+		}
+		if (available.size() == 1) {
+			return available.get(0);
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(available.size());
+		int second = random.nextInt(available.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		Replica a = available.get(first);
+		Replica b = available.get(second);
+		return a.outstanding.get() <= b.outstanding.get() ? a : b;
+	}
+
+	/**
+	 * Claim an ejected replica whose cooldown elapsed for a single trial call, so it is
+	 * readmitted by the call itself instead of a health check on the caller's thread
+	 * @return the replica, or {@code null} if none is due
+	 */
+	private Replica claimTrial() {
+		long now = System.currentTimeMillis();
+		for (Replica replica : replicas) {
+			long ejectedUntil = replica.ejectedUntil;
+			if (ejectedUntil != 0 && now >= ejectedUntil && !replica.session.isClosed()
+					&& replica.trialInFlight.compareAndSet(false, true)) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	private void succeeded(Replica replica, boolean trial) {
+		replica.consecutiveFailures.set(0);
+		if (trial) {
+			logger.info("Readmitting sandbox replica: {}", replica.session.getSessionId());
+			replica.ejectedUntil = 0;
+		}
+	}
+
+	private void recordFailure(Replica replica) {
+		if (replica.consecutiveFailures.incrementAndGet() >= maxFailures && replica.ejectedUntil == 0) {
+			logger.warn("Ejecting sandbox replica after {} consecutive failures: {}", maxFailures,
+					replica.session.getSessionId());
+			replica.ejectedUntil = System.currentTimeMillis() + ejectCooldownMillis;
+		}
+	}
+
+	/**
+	 * Get the sessions backing this replica set
+	 */
+	public List<SandboxSession> getSessions() {
+		return replicas.stream().map(replica -> replica.session).toList();
+	}
+
+	/**
+	 * Get the number of replicas currently taking calls
+	 */
+	public int getHealthyCount() {
+		return (int) replicas.stream()
+			.filter(replica -> !replica.session.isClosed() && replica.ejectedUntil == 0)
+			.count();
+	}
+
+	@Override
+	public void close() {
+		for (Replica replica : replicas) {
+			try {
+				replica.session.close();
+			}
+			catch (Exception e) {
+				logger.warn("Failed to close sandbox replica: {}", replica.session.getSessionId(), e);
+			}
+		}
+	}
+
+	/**
+	 * Replica state
+	 */
+	private static class Replica {
+
+		private final SandboxSession session;
+
+		private final AtomicInteger outstanding = new AtomicInteger();
+
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+		private volatile long ejectedUntil = 0;
+
+		Replica(SandboxSession session) {
+			this.session = session;
+		}
+
+	}
+
+}
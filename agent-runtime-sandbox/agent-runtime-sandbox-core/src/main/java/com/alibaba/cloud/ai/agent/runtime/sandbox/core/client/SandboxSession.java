@@ -23,12 +23,17 @@ import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ExecutionResult;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCall;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCallResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Represents a sandbox session with a container
@@ -43,6 +48,8 @@ public class SandboxSession implements AutoCloseable {
 
 	private final SandboxManagerClient managerClient;
 
+	private volatile ToolCallCoalescer coalescer;
+
 	private boolean closed = false;
 
 	/**
@@ -54,7 +61,7 @@ public class SandboxSession implements AutoCloseable {
 		this.managerClient = managerClient;
 	}
 
-	public List toolsList(){
+	public List<Object> toolsList(){
 		return httpClient.toolsList();
 	}
 
@@ -96,10 +103,97 @@ public class SandboxSession implements AutoCloseable {
 		return httpClient.runShellCommand(command, splitOutput);
 	}
 
+	/**
+	 * Execute shell command, streaming output chunks as they are produced.
+	 * Requires an open channel, see {@link #openChannel()}.
+	 */
+	public ExecutionResult runShellStreaming(String command, Consumer<ExecutionResult.TextContent> onOutput) {
+		checkClosed();
+		logger.debug("Streaming shell command in session: {}", container.getSessionId());
+		return httpClient.runShellCommandStreaming(command, onOutput);
+	}
+
+	/**
+	 * Open a persistent channel to the sandbox. Subsequent requests are multiplexed
+	 * over it instead of issuing one HTTP exchange each.
+	 */
+	public void openChannel() {
+		checkClosed();
+		SandboxChannel current = httpClient.getChannel();
+		if (current != null && current.isOpen()) {
+			return;
+		}
+		if (container.getSocketPath() != null) {
+			throw new SandboxClientException("Sandbox channel is not supported over a Unix domain socket");
+		}
+		logger.debug("Opening channel for session: {}", container.getSessionId());
+		httpClient.attachChannel(SandboxChannel.connect(container.getBaseUrl(), container.getBearerToken()));
+	}
+
+	/**
+	 * Check if a persistent channel is open
+	 */
+	public boolean isChannelOpen() {
+		SandboxChannel current = httpClient.getChannel();
+		return current != null && current.isOpen();
+	}
+
+	/**
+	 * Coalesce concurrent tool calls into batch requests. Calls arriving within
+	 * {@code window} of each other, up to {@code maxBatchSize}, share one request.
+	 */
+	public void enableCoalescing(Duration window, int maxBatchSize) {
+		checkClosed();
+		if (coalescer != null) {
+			return;
+		}
+		logger.debug("Enabling tool call coalescing for session: {}", container.getSessionId());
+		coalescer = new ToolCallCoalescer(httpClient, window, maxBatchSize);
+	}
+
+	/**
+	 * Check if tool calls are coalesced
+	 */
+	public boolean isCoalescingEnabled() {
+		return coalescer != null;
+	}
+
 	public Object call(String name, Map<String, Object> args){
 		checkClosed();
 		logger.debug("Calling tools in session: {}", container.getSessionId());
-		return httpClient.call(name, args);
+		ToolCallCoalescer current = coalescer;
+		if (current == null) {
+			return httpClient.call(name, args);
+		}
+		try {
+			return current.submit(name, args).join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof SandboxClientException sandboxClientException) {
+				throw sandboxClientException;
+			}
+			throw new SandboxClientException("Failed to execute request to /tools/call", e.getCause());
+		}
+	}
+
+	/**
+	 * Execute several independent tool calls in one request. They run in parallel in
+	 * the sandbox and results are returned in call order.
+	 */
+	public List<ToolCallResult> callBatch(List<ToolCall> calls) {
+		checkClosed();
+		logger.debug("Calling {} tools in session: {}", calls.size(), container.getSessionId());
+		return httpClient.callBatch(calls);
+	}
+
+	/**
+	 * Execute several independent tool calls in one request, receiving each result as
+	 * soon as it completes
+	 */
+	public void callBatchStreaming(List<ToolCall> calls, Consumer<ToolCallResult> onResult) {
+		checkClosed();
+		logger.debug("Streaming {} tool calls in session: {}", calls.size(), container.getSessionId());
+		httpClient.callBatchStreaming(calls, onResult);
 	}
 
 
@@ -134,6 +228,14 @@ public class SandboxSession implements AutoCloseable {
 		return container.getContainerId();
 	}
 
+	/**
+	 * Get the kernel serving this session in a shared container, {@code null} when the
+	 * session owns its container
+	 */
+	public String getKernelId() {
+		return container.getKernelId();
+	}
+
 	/**
 	 * Get base URL
 	 */
@@ -204,6 +306,10 @@ public class SandboxSession implements AutoCloseable {
 
 		logger.info("Closing sandbox session: {}", container.getSessionId());
 
+		if (coalescer != null) {
+			coalescer.close();
+		}
+
 		try {
 			// Close HTTP client
 			httpClient.close();
@@ -226,8 +332,9 @@ public class SandboxSession implements AutoCloseable {
 
 	@Override
 	public String toString() {
-		return String.format("SandboxSession{sessionId='%s', containerId='%s', baseUrl='%s', closed=%s}",
-				container.getSessionId(), container.getContainerId(), container.getBaseUrl(), closed);
+		return String.format("SandboxSession{sessionId='%s', containerId='%s', kernelId='%s', baseUrl='%s', closed=%s}",
+				container.getSessionId(), container.getContainerId(), container.getKernelId(), container.getBaseUrl(),
+				closed);
 	}
 
 }
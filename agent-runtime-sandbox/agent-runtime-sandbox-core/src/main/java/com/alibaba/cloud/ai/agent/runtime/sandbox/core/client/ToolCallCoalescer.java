@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxToolException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCall;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCallResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent tool calls of one session into batch requests.
+ *
+ * <p>
+ * Calls are collected until the window elapses or the batch is full, then sent as a
+ * single {@code /tools/call_batch} request and the results are handed back to each
+ * caller's future. A window holding a single call falls back to {@code /tools/call}.
+ */
+public class ToolCallCoalescer implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ToolCallCoalescer.class);
+
+	private final SandboxHttpClient httpClient;
+
+	private final long windowNanos;
+
+	private final int maxBatchSize;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ExecutorService dispatcher;
+
+	private final Object lock = new Object();
+
+	private List<PendingCall> pending = new ArrayList<>();
+
+	private ScheduledFuture<?> flushTask;
+
+	private boolean closed = false;
+
+	/**
+	 * Constructor
+	 */
+	public ToolCallCoalescer(SandboxHttpClient httpClient, Duration window, int maxBatchSize) {
+		this.httpClient = httpClient;
+		this.windowNanos = window.toNanos();
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "sandbox-coalescer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.dispatcher = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "sandbox-coalescer-dispatch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queue a tool call for the next batch
+	 */
+	public CompletableFuture<Object> submit(String name, Map<String, Object> args) {
+		PendingCall call = new PendingCall(new ToolCall(name, args));
+		List<PendingCall> ready = null;
+
+		synchronized (lock) {
+			if (closed) {
+				return CompletableFuture.failedFuture(new SandboxClientException("Tool call coalescer is closed"));
+			}
+			pending.add(call);
+			if (pending.size() >= maxBatchSize) {
+				ready = drain();
+			}
+			else if (flushTask == null) {
+				flushTask = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		if (ready != null) {
+			dispatch(ready);
+		}
+		return call.future;
+	}
+
+	/**
+	 * Take the current window, must hold the lock
+	 */
+	private List<PendingCall> drain() {
+		List<PendingCall> batch = pending;
+		pending = new ArrayList<>();
+		if (flushTask != null) {
+			flushTask.cancel(false);
+			flushTask = null;
+		}
+		return batch;
+	}
+
+	private void flush() {
+		List<PendingCall> batch;
+		synchronized (lock) {
+			batch = drain();
+		}
+		if (!batch.isEmpty()) {
+			dispatch(batch);
+		}
+	}
+
+	private void dispatch(List<PendingCall> batch) {
+		try {
+			dispatcher.execute(() -> send(batch));
+		}
+		catch (Exception e) {
+			batch.forEach(call -> call.future.completeExceptionally(e));
+		}
+	}
+
+	private void send(List<PendingCall> batch) {
+		if (batch.size() == 1) {
+			PendingCall call = batch.get(0);
+			try {
+				call.future.complete(httpClient.call(call.toolCall.getName(), call.toolCall.getArgs()));
+			}
+			catch (Exception e) {
+				call.future.completeExceptionally(e);
+			}
+			return;
+		}
+
+		List<ToolCallResult> results;
+		try {
+			results = httpClient.callBatch(batch.stream().map(call -> call.toolCall).toList());
+			if (results == null || results.size() != batch.size()) {
+				throw new SandboxClientException("Batch response does not match request size: " + batch.size());
+			}
+		}
+		catch (Exception e) {
+			logger.debug("Tool call batch of {} failed", batch.size(), e);
+			batch.forEach(call -> call.future.completeExceptionally(e));
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			PendingCall call = batch.get(i);
+			ToolCallResult result = results.get(i);
+			if (result.hasError()) {
+				call.future.completeExceptionally(new SandboxToolException(
+						"Tool call failed: " + call.toolCall.getName() + ": " + result.getError()));
+			}
+			else {
+				call.future.complete(result.getResult());
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		List<PendingCall> batch;
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			batch = drain();
+		}
+		// Let calls already accepted complete before shutting down
+		if (!batch.isEmpty()) {
+			send(batch);
+		}
+		scheduler.shutdownNow();
+		dispatcher.shutdown();
+	}
+
+	/**
+	 * Tool call awaiting its batch result
+	 */
+	private static class PendingCall {
+
+		private final ToolCall toolCall;
+
+		private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		PendingCall(ToolCall toolCall) {
+			this.toolCall = toolCall;
+		}
+
+	}
+
+}
@@ -24,16 +24,39 @@ package com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions;
  */
 public class SandboxClientException extends RuntimeException {
 
+	/** HTTP status of the failed request, 0 when no response was received */
+	private final int statusCode;
+
 	public SandboxClientException(String message) {
 		super(message);
+		this.statusCode = 0;
+	}
+
+	public SandboxClientException(String message, int statusCode) {
+		super(message);
+		this.statusCode = statusCode;
 	}
 
 	public SandboxClientException(String message, Throwable cause) {
 		super(message, cause);
+		this.statusCode = 0;
 	}
 
 	public SandboxClientException(Throwable cause) {
 		super(cause);
+		this.statusCode = 0;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Whether the sandbox itself failed: no response, a timeout or a server error.
+	 * Rejected requests and tool errors say nothing about its health.
+	 */
+	public boolean isSandboxFailure() {
+		return statusCode == 0 || statusCode >= 500;
 	}
 
 }
@@ -17,20 +17,21 @@
  * under the License.
  */
 
-package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.utils;
 
-import org.springframework.ai.tool.ToolCallback;
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions;
 
-public class ToolCallbackUtils {
+/**
+ * Exception thrown when a tool call completes with an error result
+ */
+public class SandboxToolException extends SandboxClientException {
+
+	public SandboxToolException(String message) {
+		super(message);
+	}
 
-	public static ToolCallback findToolCallbackByName(ToolCallback[] toolCallbacks, String toolNameSuffix) {
-		for (ToolCallback toolCallback : toolCallbacks) {
-			String toolName = toolCallback.getToolDefinition().name();
-			if (toolName.toLowerCase().endsWith(toolNameSuffix.toLowerCase())) {
-				return toolCallback;
-			}
-		}
-		return null;
+	@Override
+	public boolean isSandboxFailure() {
+		return false;
 	}
 
 }
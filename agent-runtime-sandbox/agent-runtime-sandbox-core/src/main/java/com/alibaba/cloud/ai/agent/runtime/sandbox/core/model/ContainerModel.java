@@ -60,6 +60,25 @@ public class ContainerModel {
 	@JsonProperty("mount_dir")
 	private String mountDir;
 
+	@JsonProperty("socket_path")
+	private String socketPath;
+
+	@JsonProperty("ip_address")
+	private String ipAddress;
+
+	@JsonProperty("image_name")
+	private String imageName;
+
+	@JsonProperty("docker_host")
+	private String dockerHost;
+
+	/**
+	 * Kernel serving the session when the container is shared by several sessions,
+	 * {@code null} when the session owns the container
+	 */
+	@JsonProperty("kernel_id")
+	private String kernelId;
+
 	// Constructors
 	public ContainerModel() {
 	}
@@ -73,6 +92,23 @@ public class ContainerModel {
 		this.sandboxType = sandboxType;
 	}
 
+	/**
+	 * Copy of this container model for a session served by one of its kernels
+	 */
+	public ContainerModel forKernel(String sessionId, String kernelId) {
+		ContainerModel model = new ContainerModel(sessionId, containerId, baseUrl, ports, sandboxType);
+		model.setClientBrowserWs(clientBrowserWs);
+		model.setBearerToken(bearerToken);
+		model.setEnvironment(environment);
+		model.setMountDir(mountDir);
+		model.setSocketPath(socketPath);
+		model.setIpAddress(ipAddress);
+		model.setImageName(imageName);
+		model.setDockerHost(dockerHost);
+		model.setKernelId(kernelId);
+		return model;
+	}
+
 	// Getters and Setters
 	public String getSessionId() {
 		return sessionId;
@@ -139,6 +175,46 @@ public class ContainerModel {
 		this.mountDir = mountDir;
 	}
 
+	public String getIpAddress() {
+		return ipAddress;
+	}
+
+	public void setIpAddress(String ipAddress) {
+		this.ipAddress = ipAddress;
+	}
+
+	public String getSocketPath() {
+		return socketPath;
+	}
+
+	public void setSocketPath(String socketPath) {
+		this.socketPath = socketPath;
+	}
+
+	public String getImageName() {
+		return imageName;
+	}
+
+	public void setImageName(String imageName) {
+		this.imageName = imageName;
+	}
+
+	public String getDockerHost() {
+		return dockerHost;
+	}
+
+	public void setDockerHost(String dockerHost) {
+		this.dockerHost = dockerHost;
+	}
+
+	public String getKernelId() {
+		return kernelId;
+	}
+
+	public void setKernelId(String kernelId) {
+		this.kernelId = kernelId;
+	}
+
 	public String getSandboxType() {
 		return sandboxType;
 	}
@@ -150,7 +226,7 @@ public class ContainerModel {
 	@Override
 	public String toString() {
 		return "ContainerModel{" + "sessionId='" + sessionId + '\'' + ", containerId='" + containerId + '\''
-				+ ", baseUrl='" + baseUrl + '\'' + ", ports=" + ports + ", sandboxType" + sandboxType + '\'' + '}';
+				+ ", baseUrl='" + baseUrl + '\'' + ", ports=" + ports + ", sandboxType" + sandboxType + '\'' + ", kernelId='" + kernelId + '\'' + '}';
 	}
 
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.model;
+
+import java.util.Map;
+
+/**
+ * A single MCP tool invocation within a batch
+ */
+public class ToolCall {
+
+	private String name;
+
+	private Map<String, Object> args;
+
+	// Constructors
+	public ToolCall() {
+	}
+
+	public ToolCall(String name, Map<String, Object> args) {
+		this.name = name;
+		this.args = args;
+	}
+
+	// Getters and Setters
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Map<String, Object> getArgs() {
+		return args;
+	}
+
+	public void setArgs(Map<String, Object> args) {
+		this.args = args;
+	}
+
+}
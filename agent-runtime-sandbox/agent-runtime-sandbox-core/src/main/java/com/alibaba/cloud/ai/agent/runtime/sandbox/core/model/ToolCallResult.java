@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.model;
+
+import java.util.List;
+
+/**
+ * Outcome of one tool invocation in a batch, either a result or an error message. The
+ * index of the call is set when results are streamed out of order.
+ */
+public class ToolCallResult {
+
+	private Integer index;
+
+	private List<ToolResult.Content> result;
+
+	private String error;
+
+	// Constructors
+	public ToolCallResult() {
+	}
+
+	public ToolCallResult(List<ToolResult.Content> result, String error) {
+		this.result = result;
+		this.error = error;
+	}
+
+	// Getters and Setters
+	public Integer getIndex() {
+		return index;
+	}
+
+	public void setIndex(Integer index) {
+		this.index = index;
+	}
+
+	public List<ToolResult.Content> getResult() {
+		return result;
+	}
+
+	public void setResult(List<ToolResult.Content> result) {
+		this.result = result;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public boolean hasError() {
+		return error != null;
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of an MCP tool call
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ToolResult {
+
+	private List<Content> content;
+
+	@JsonProperty("isError")
+	private boolean isError;
+
+	// Constructors
+	public ToolResult() {
+	}
+
+	public ToolResult(List<Content> content, boolean isError) {
+		this.content = content;
+		this.isError = isError;
+	}
+
+	// Getters and Setters
+	public List<Content> getContent() {
+		return content;
+	}
+
+	public void setContent(List<Content> content) {
+		this.content = content;
+	}
+
+	public boolean isError() {
+		return isError;
+	}
+
+	public void setError(boolean error) {
+		isError = error;
+	}
+
+	/**
+	 * MCP content item: {@code text}, {@code image}, {@code audio} or {@code resource}
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Content {
+
+		private String type;
+
+		private String text;
+
+		private String data;
+
+		private String mimeType;
+
+		private Map<String, Object> resource;
+
+		public Content() {
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public void setType(String type) {
+			this.type = type;
+		}
+
+		public String getText() {
+			return text;
+		}
+
+		public void setText(String text) {
+			this.text = text;
+		}
+
+		public String getData() {
+			return data;
+		}
+
+		public void setData(String data) {
+			this.data = data;
+		}
+
+		public String getMimeType() {
+			return mimeType;
+		}
+
+		public void setMimeType(String mimeType) {
+			this.mimeType = mimeType;
+		}
+
+		public Map<String, Object> getResource() {
+			return resource;
+		}
+
+		public void setResource(Map<String, Object> resource) {
+			this.resource = resource;
+		}
+
+	}
+
+}
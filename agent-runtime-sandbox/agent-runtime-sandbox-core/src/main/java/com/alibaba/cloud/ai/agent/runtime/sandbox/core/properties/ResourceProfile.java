@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties;
+
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Resource limits applied to a sandbox when it is created. Unset values leave the
+ * runtime default, i.e. unlimited.
+ */
+public class ResourceProfile {
+
+	/**
+	 * CPUs the sandbox may use, e.g. {@code 1.5}. Enforced as a CFS quota.
+	 */
+	private double cpus;
+
+	/**
+	 * Relative CPU weight under contention, 1024 being the runtime default.
+	 */
+	private int cpuShares;
+
+	/**
+	 * Hard memory limit, swap included.
+	 */
+	private DataSize memory;
+
+	/**
+	 * Maximum number of processes and threads, guarding against fork bombs.
+	 */
+	private long pidsLimit;
+
+	/**
+	 * CPU limit in units of 10<sup>-9</sup> CPUs, 0 when unlimited
+	 */
+	public long getNanoCpus() {
+		return (long) (cpus * 1_000_000_000L);
+	}
+
+	/**
+	 * Memory limit in bytes, 0 when unlimited
+	 */
+	public long getMemoryBytes() {
+		return memory == null ? 0 : memory.toBytes();
+	}
+
+	public double getCpus() {
+		return cpus;
+	}
+
+	public void setCpus(double cpus) {
+		this.cpus = cpus;
+	}
+
+	public int getCpuShares() {
+		return cpuShares;
+	}
+
+	public void setCpuShares(int cpuShares) {
+		this.cpuShares = cpuShares;
+	}
+
+	public DataSize getMemory() {
+		return memory;
+	}
+
+	public void setMemory(DataSize memory) {
+		this.memory = memory;
+	}
+
+	public long getPidsLimit() {
+		return pidsLimit;
+	}
+
+	public void setPidsLimit(long pidsLimit) {
+		this.pidsLimit = pidsLimit;
+	}
+
+}
@@ -20,7 +20,11 @@
 package com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +43,10 @@ public class SandboxProperties {
 
 	private String containerPrefixKey = "sandbox-";
 
+	/**
+	 * Sandbox backend, matched against the types of the SandboxBackendProviders on the
+	 * classpath: "docker", "process" or "kubernetes".
+	 */
 	private String deploymentType = "docker";
 
 	private String bearerToken = "default_token";
@@ -47,6 +55,30 @@ public class SandboxProperties {
 
 	private List<Integer> portRange = List.of(49152, 59152);
 
+	/**
+	 * Open a persistent multiplexed channel for each session instead of one HTTP
+	 * exchange per request.
+	 */
+	private boolean channelEnabled = false;
+
+	/**
+	 * Coalesce concurrent tool calls of a session into batch requests, flushed when the
+	 * window elapses or the batch is full.
+	 */
+	private boolean coalescingEnabled = false;
+
+	private Duration coalescingWindow = Duration.ofMillis(2);
+
+	private int coalescingMaxBatchSize = 32;
+
+	/**
+	 * Control channel transport: "tcp" publishes the sandbox server port on the host,
+	 * "uds" has it listen on a Unix domain socket in a per-session host directory.
+	 */
+	private String transport = "tcp";
+
+	private String socketDir = "/tmp/agent-runtime-sandbox";
+
 	/**
 	 * Redis settings.
 	 */
@@ -82,8 +114,152 @@ public class SandboxProperties {
 	 */
 	private String dockerHost = "unix:///var/run/docker.sock";
 
+	/**
+	 * Docker endpoints to spread sandboxes over. When empty, only {@code docker-host} is
+	 * used.
+	 */
+	private List<String> dockerHosts = new ArrayList<>();
+
+	/**
+	 * Host placement: "least-containers" picks the host running the fewest sandboxes,
+	 * "most-memory" the one with the most memory left after reserving
+	 * {@code container-memory-estimate} per running sandbox.
+	 */
+	private String placementStrategy = "least-containers";
+
+	private DataSize containerMemoryEstimate = DataSize.ofMegabytes(512);
+
+	/**
+	 * Resource limits per sandbox type, e.g. {@code browser: {cpus: 2, memory: 2GB}}.
+	 * The "default" entry applies to types without their own profile.
+	 */
+	private Map<String, ResourceProfile> resourceProfiles = new HashMap<>();
+
+	/**
+	 * How long a create waits for capacity to free up when every host is fully
+	 * reserved, before it is rejected. Zero rejects at once.
+	 */
+	private Duration admissionTimeout = Duration.ofSeconds(30);
+
 	private Map<String, String> dockerEnvironment;
 
+	/**
+	 * Python modules to import into the sandbox's IPython shell before it reports ready,
+	 * per sandbox type, e.g. {@code base: [numpy as np, pandas as pd]}. Keeps import
+	 * time out of the first cell of a session.
+	 */
+	private Map<String, List<String>> preloadModules = new HashMap<>();
+
+	/**
+	 * Sessions packed into one container per sandbox type, e.g. {@code base: 8}. Above 1,
+	 * each session gets its own IPython kernel and working directory in a container shared
+	 * with other sessions instead of a container of its own. Only the base sandbox server
+	 * hosts kernels.
+	 */
+	private Map<String, Integer> kernelDensity = new HashMap<>();
+
+	/**
+	 * Pull the images of {@code image-pre-pull-types} on every Docker host in the
+	 * background at startup, and reject creates with a warming status until the image is
+	 * present instead of pulling while the session waits.
+	 */
+	private boolean imagePrePull = false;
+
+	private List<String> imagePrePullTypes = new ArrayList<>(List.of("base"));
+
+	/**
+	 * How often to pull the sandbox images again to pick up new versions of their tags.
+	 */
+	private Duration imageRefreshInterval = Duration.ofMinutes(30);
+
+	/**
+	 * Mount a pip wheelhouse and an npm cache shared by all sandboxes of a Docker host
+	 * read-only into every sandbox, populated in the background with the packages below.
+	 */
+	private boolean packageCacheEnabled = false;
+
+	/**
+	 * pip requirement specifiers to prebuild wheels for, e.g. {@code pandas==2.0.3}.
+	 */
+	private List<String> packageCachePipRequirements = new ArrayList<>();
+
+	/**
+	 * npm package specs to cache, e.g. {@code typescript@5.4.5}.
+	 */
+	private List<String> packageCacheNpmPackages = new ArrayList<>();
+
+	/**
+	 * User-defined Docker network for sandboxes. When set, containers are addressed by
+	 * their IP on this network and no ports are published on the host.
+	 */
+	private String networkName;
+
+	/**
+	 * Time the sandbox server gets to answer its health check once its container runs,
+	 * including the imports of {@code preload-modules}.
+	 */
+	private Duration serverReadyTimeout = Duration.ofSeconds(60);
+
+	/**
+	 * Process backend settings, used when the deployment type is "process". The sandbox
+	 * server runs as a child process of the manager in a per-session working directory
+	 * under {@code process-work-dir}.
+	 */
+	private List<String> processCommand = new ArrayList<>(List.of("python3", "/app/main.py"));
+
+	private String processWorkDir = "/tmp/agent-runtime-sandbox/process";
+
+	/**
+	 * User to run the sandbox server as, "uid" or "uid:gid". Requires the manager to
+	 * run as root.
+	 */
+	private String processUser;
+
+	/**
+	 * Linux namespaces to isolate the sandbox server in: pid, mount, ipc, uts, net.
+	 */
+	private List<String> processNamespaces = new ArrayList<>();
+
+	private Duration processStartTimeout = Duration.ofSeconds(30);
+
+	/**
+	 * Kubernetes backend settings, used when the deployment type is "kubernetes".
+	 * Sandboxes run as pods in {@code kubernetes-namespace} and are addressed by pod IP.
+	 */
+	private String kubernetesNamespace = "default";
+
+	/**
+	 * Ready pods to keep on standby per sandbox type, e.g. {@code base: 2}.
+	 */
+	private Map<String, Integer> kubernetesWarmPools = new HashMap<>();
+
+	/**
+	 * Maximum pod creates in flight against the API server.
+	 */
+	private int kubernetesCreateConcurrency = 8;
+
+	/**
+	 * How long a pod may take to become ready, including waiting for the cluster
+	 * autoscaler to add a node.
+	 */
+	private Duration kubernetesPodReadyTimeout = Duration.ofMinutes(5);
+
+	private String kubernetesCpuRequest = "500m";
+
+	private String kubernetesMemoryRequest = "512Mi";
+
+	private String kubernetesCpuLimit;
+
+	private String kubernetesMemoryLimit;
+
+	private Map<String, String> kubernetesNodeSelector = new HashMap<>();
+
+	/**
+	 * Priority class for warm pods. A class below that of session pods lets sessions
+	 * preempt standby pods and the autoscaler grow the cluster to refill the pool.
+	 */
+	private String kubernetesWarmPriorityClass;
+
 	public int getPoolSize() {
 		return poolSize;
 	}
@@ -140,6 +316,58 @@ public class SandboxProperties {
 		this.portRange = portRange;
 	}
 
+	public boolean isChannelEnabled() {
+		return channelEnabled;
+	}
+
+	public void setChannelEnabled(boolean channelEnabled) {
+		this.channelEnabled = channelEnabled;
+	}
+
+	public boolean isCoalescingEnabled() {
+		return coalescingEnabled;
+	}
+
+	public void setCoalescingEnabled(boolean coalescingEnabled) {
+		this.coalescingEnabled = coalescingEnabled;
+	}
+
+	public Duration getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	public void setCoalescingWindow(Duration coalescingWindow) {
+		this.coalescingWindow = coalescingWindow;
+	}
+
+	public int getCoalescingMaxBatchSize() {
+		return coalescingMaxBatchSize;
+	}
+
+	public void setCoalescingMaxBatchSize(int coalescingMaxBatchSize) {
+		this.coalescingMaxBatchSize = coalescingMaxBatchSize;
+	}
+
+	public String getTransport() {
+		return transport;
+	}
+
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+
+	public boolean isUnixSocketTransport() {
+		return "uds".equalsIgnoreCase(transport);
+	}
+
+	public String getSocketDir() {
+		return socketDir;
+	}
+
+	public void setSocketDir(String socketDir) {
+		this.socketDir = socketDir;
+	}
+
 	public boolean isRedisEnabled() {
 		return redisEnabled;
 	}
@@ -244,6 +472,155 @@ public class SandboxProperties {
 		this.dockerHost = dockerHost;
 	}
 
+	public String getNetworkName() {
+		return networkName;
+	}
+
+	public void setNetworkName(String networkName) {
+		this.networkName = networkName;
+	}
+
+	public Duration getServerReadyTimeout() {
+		return serverReadyTimeout;
+	}
+
+	public void setServerReadyTimeout(Duration serverReadyTimeout) {
+		this.serverReadyTimeout = serverReadyTimeout;
+	}
+
+	public List<String> getDockerHosts() {
+		return dockerHosts;
+	}
+
+	public void setDockerHosts(List<String> dockerHosts) {
+		this.dockerHosts = dockerHosts;
+	}
+
+	public String getPlacementStrategy() {
+		return placementStrategy;
+	}
+
+	public void setPlacementStrategy(String placementStrategy) {
+		this.placementStrategy = placementStrategy;
+	}
+
+	public DataSize getContainerMemoryEstimate() {
+		return containerMemoryEstimate;
+	}
+
+	public void setContainerMemoryEstimate(DataSize containerMemoryEstimate) {
+		this.containerMemoryEstimate = containerMemoryEstimate;
+	}
+
+	public boolean isPrivateNetwork() {
+		return networkName != null && !networkName.isEmpty();
+	}
+
+	public Map<String, ResourceProfile> getResourceProfiles() {
+		return resourceProfiles;
+	}
+
+	public void setResourceProfiles(Map<String, ResourceProfile> resourceProfiles) {
+		this.resourceProfiles = resourceProfiles;
+	}
+
+	/**
+	 * Resource profile of a sandbox type, falling back to the "default" profile
+	 */
+	public ResourceProfile getResourceProfile(String sandboxType) {
+		ResourceProfile profile = resourceProfiles.get(sandboxType);
+		if (profile == null) {
+			profile = resourceProfiles.get("default");
+		}
+		return profile == null ? new ResourceProfile() : profile;
+	}
+
+	public Duration getAdmissionTimeout() {
+		return admissionTimeout;
+	}
+
+	public void setAdmissionTimeout(Duration admissionTimeout) {
+		this.admissionTimeout = admissionTimeout;
+	}
+
+	public boolean isImagePrePull() {
+		return imagePrePull;
+	}
+
+	public void setImagePrePull(boolean imagePrePull) {
+		this.imagePrePull = imagePrePull;
+	}
+
+	public List<String> getImagePrePullTypes() {
+		return imagePrePullTypes;
+	}
+
+	public void setImagePrePullTypes(List<String> imagePrePullTypes) {
+		this.imagePrePullTypes = imagePrePullTypes;
+	}
+
+	public Duration getImageRefreshInterval() {
+		return imageRefreshInterval;
+	}
+
+	public void setImageRefreshInterval(Duration imageRefreshInterval) {
+		this.imageRefreshInterval = imageRefreshInterval;
+	}
+
+	public boolean isPackageCacheEnabled() {
+		return packageCacheEnabled;
+	}
+
+	public void setPackageCacheEnabled(boolean packageCacheEnabled) {
+		this.packageCacheEnabled = packageCacheEnabled;
+	}
+
+	public List<String> getPackageCachePipRequirements() {
+		return packageCachePipRequirements;
+	}
+
+	public void setPackageCachePipRequirements(List<String> packageCachePipRequirements) {
+		this.packageCachePipRequirements = packageCachePipRequirements;
+	}
+
+	public List<String> getPackageCacheNpmPackages() {
+		return packageCacheNpmPackages;
+	}
+
+	public void setPackageCacheNpmPackages(List<String> packageCacheNpmPackages) {
+		this.packageCacheNpmPackages = packageCacheNpmPackages;
+	}
+
+	public Map<String, List<String>> getPreloadModules() {
+		return preloadModules;
+	}
+
+	public void setPreloadModules(Map<String, List<String>> preloadModules) {
+		this.preloadModules = preloadModules;
+	}
+
+	/**
+	 * Modules to preload for a sandbox type, empty when none are configured
+	 */
+	public List<String> getPreloadModules(String sandboxType) {
+		return preloadModules.getOrDefault(sandboxType, List.of());
+	}
+
+	public Map<String, Integer> getKernelDensity() {
+		return kernelDensity;
+	}
+
+	public void setKernelDensity(Map<String, Integer> kernelDensity) {
+		this.kernelDensity = kernelDensity;
+	}
+
+	/**
+	 * Sessions per container for a sandbox type, 1 when the type is not packed
+	 */
+	public int getKernelDensity(String sandboxType) {
+		return Math.max(1, kernelDensity.getOrDefault(sandboxType, 1));
+	}
+
 	public Map<String, String> getDockerEnvironment() {
 		return dockerEnvironment;
 	}
@@ -252,4 +629,124 @@ public class SandboxProperties {
 		this.dockerEnvironment = dockerEnvironment;
 	}
 
+	public List<String> getProcessCommand() {
+		return processCommand;
+	}
+
+	public void setProcessCommand(List<String> processCommand) {
+		this.processCommand = processCommand;
+	}
+
+	public String getProcessWorkDir() {
+		return processWorkDir;
+	}
+
+	public void setProcessWorkDir(String processWorkDir) {
+		this.processWorkDir = processWorkDir;
+	}
+
+	public String getProcessUser() {
+		return processUser;
+	}
+
+	public void setProcessUser(String processUser) {
+		this.processUser = processUser;
+	}
+
+	public List<String> getProcessNamespaces() {
+		return processNamespaces;
+	}
+
+	public void setProcessNamespaces(List<String> processNamespaces) {
+		this.processNamespaces = processNamespaces;
+	}
+
+	public Duration getProcessStartTimeout() {
+		return processStartTimeout;
+	}
+
+	public void setProcessStartTimeout(Duration processStartTimeout) {
+		this.processStartTimeout = processStartTimeout;
+	}
+
+	public String getKubernetesNamespace() {
+		return kubernetesNamespace;
+	}
+
+	public void setKubernetesNamespace(String kubernetesNamespace) {
+		this.kubernetesNamespace = kubernetesNamespace;
+	}
+
+	public Map<String, Integer> getKubernetesWarmPools() {
+		return kubernetesWarmPools;
+	}
+
+	public void setKubernetesWarmPools(Map<String, Integer> kubernetesWarmPools) {
+		this.kubernetesWarmPools = kubernetesWarmPools;
+	}
+
+	public int getKubernetesCreateConcurrency() {
+		return kubernetesCreateConcurrency;
+	}
+
+	public void setKubernetesCreateConcurrency(int kubernetesCreateConcurrency) {
+		this.kubernetesCreateConcurrency = kubernetesCreateConcurrency;
+	}
+
+	public Duration getKubernetesPodReadyTimeout() {
+		return kubernetesPodReadyTimeout;
+	}
+
+	public void setKubernetesPodReadyTimeout(Duration kubernetesPodReadyTimeout) {
+		this.kubernetesPodReadyTimeout = kubernetesPodReadyTimeout;
+	}
+
+	public String getKubernetesCpuRequest() {
+		return kubernetesCpuRequest;
+	}
+
+	public void setKubernetesCpuRequest(String kubernetesCpuRequest) {
+		this.kubernetesCpuRequest = kubernetesCpuRequest;
+	}
+
+	public String getKubernetesMemoryRequest() {
+		return kubernetesMemoryRequest;
+	}
+
+	public void setKubernetesMemoryRequest(String kubernetesMemoryRequest) {
+		this.kubernetesMemoryRequest = kubernetesMemoryRequest;
+	}
+
+	public String getKubernetesCpuLimit() {
+		return kubernetesCpuLimit;
+	}
+
+	public void setKubernetesCpuLimit(String kubernetesCpuLimit) {
+		this.kubernetesCpuLimit = kubernetesCpuLimit;
+	}
+
+	public String getKubernetesMemoryLimit() {
+		return kubernetesMemoryLimit;
+	}
+
+	public void setKubernetesMemoryLimit(String kubernetesMemoryLimit) {
+		this.kubernetesMemoryLimit = kubernetesMemoryLimit;
+	}
+
+	public Map<String, String> getKubernetesNodeSelector() {
+		return kubernetesNodeSelector;
+	}
+
+	public void setKubernetesNodeSelector(Map<String, String> kubernetesNodeSelector) {
+		this.kubernetesNodeSelector = kubernetesNodeSelector;
+	}
+
+	public String getKubernetesWarmPriorityClass() {
+		return kubernetesWarmPriorityClass;
+	}
+
+	public void setKubernetesWarmPriorityClass(String kubernetesWarmPriorityClass) {
+		this.kubernetesWarmPriorityClass = kubernetesWarmPriorityClass;
+	}
+
 }
@@ -19,48 +19,79 @@
 
 package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
 
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackendProvider;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxEvent;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxState;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.client.SandboxHttpClient;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxAdmissionException;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.CreateContainerResponse;
-import com.github.dockerjava.api.command.InspectContainerResponse;
-import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service for managing Docker containers
+ * Service for managing sandbox containers.
+ *
+ * <p>
+ * Session bookkeeping lives here while the runtime specific work is delegated to a
+ * {@link SandboxBackend}, picked by {@code sandbox.deployment-type} among the
+ * {@link SandboxBackendProvider}s on the classpath.
+ *
+ * <p>
+ * In dense mode, enabled per sandbox type by {@code sandbox.kernel-density}, a session is
+ * a kernel in a container shared with other sessions rather than a container of its own.
+ * New sessions go to the fullest shared container that still has room, so containers
+ * fill up before new ones are started, and a container is removed with its last session.
+ * A container still starting takes sessions too; they wait for it rather than starting
+ * containers of their own.
  */
 public class ContainerService {
 
 	private static final Logger logger = LoggerFactory.getLogger(ContainerService.class);
 
 	public ContainerService(SandboxProperties config) {
+		this(config, loadBackend(config));
+	}
+
+	public ContainerService(SandboxProperties config, SandboxBackend backend) {
 		this.config = config;
+		this.backend = backend;
 	}
 
 	private final SandboxProperties config;
 
-	private DockerClient dockerClient;
+	private final SandboxBackend backend;
 
 	private final Map<String, ContainerModel> activeContainers = new ConcurrentHashMap<>();
 
-	private final Set<Integer> occupiedPorts = ConcurrentHashMap.newKeySet();
+	/** Containers hosting the kernels of several sessions, by container ID */
+	private final Map<String, SharedContainer> sharedContainers = new ConcurrentHashMap<>();
+
+	/** Shared containers being started, guarded by {@code sharedLock} */
+	private final Set<SharedContainer> pendingContainers = new HashSet<>();
+
+	private final Object sharedLock = new Object();
 
 	@PostConstruct
 	public void init() {
-		initializeDockerClient();
+		for (String type : config.getKernelDensity().keySet()) {
+			if (config.getKernelDensity(type) > 1 && !SandboxType.BASE.getValue().equals(type)) {
+				throw new IllegalArgumentException(
+						"Kernel density above 1 is only supported for the base sandbox type, not " + type);
+			}
+		}
+		backend.init();
+		backend.addListener(this::onBackendEvent);
 	}
 
 	@PreDestroy
@@ -68,277 +99,288 @@ public class ContainerService {
 		if (config.isAutoCleanup()) {
 			cleanupAllContainers();
 		}
-		if (dockerClient != null) {
-			try {
-				dockerClient.close();
-			}
-			catch (Exception e) {
-				logger.error("Error closing Docker client", e);
+		backend.close();
+	}
+
+	/**
+	 * Find the backend for the configured deployment type
+	 */
+	private static SandboxBackend loadBackend(SandboxProperties config) {
+		List<String> available = new ArrayList<>();
+		for (SandboxBackendProvider provider : ServiceLoader.load(SandboxBackendProvider.class)) {
+			if (provider.getType().equalsIgnoreCase(config.getDeploymentType())) {
+				return provider.create(config);
 			}
+			available.add(provider.getType());
 		}
+		throw new IllegalStateException(
+				"No sandbox backend for deployment type " + config.getDeploymentType() + ", available: " + available);
 	}
 
 	/**
-	 * Initialize Docker client
+	 * Create and start a new container, or a kernel in a shared container in dense mode
+	 * @throws SandboxAdmissionException when there is no capacity for the sandbox
 	 */
-	private void initializeDockerClient() {
-		try {
-			DefaultDockerClientConfig dockerConfig = DefaultDockerClientConfig.createDefaultConfigBuilder()
-				.withDockerHost(config.getDockerHost())
-				.build();
-
-			ApacheDockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
-				.dockerHost(dockerConfig.getDockerHost())
-				.sslConfig(dockerConfig.getSSLConfig())
-				.maxConnections(100)
-				.connectionTimeout(Duration.ofSeconds(30))
-				.responseTimeout(Duration.ofSeconds(45))
-				.build();
-
-			dockerClient = DockerClientBuilder.getInstance(dockerConfig).withDockerHttpClient(httpClient).build();
-
-			// Test connection
-			dockerClient.pingCmd().exec();
-			logger.info("Docker client initialized successfully");
-
-		}
-		catch (Exception e) {
-			logger.error("Failed to initialize Docker client", e);
-			throw new RuntimeException("Docker client initialization failed", e);
+	public ContainerModel createContainer(String sessionId, SandboxType sandboxType) {
+		int density = config.getKernelDensity(sandboxType.getValue());
+		if (density > 1) {
+			return createKernel(sessionId, sandboxType, density);
 		}
+		ContainerModel container = provision(sessionId, sandboxType);
+		activeContainers.put(sessionId, container);
+		return container;
 	}
 
 	/**
-	 * Create and start a new container
+	 * Create, start and wait for a container
 	 */
-	public ContainerModel createContainer(String sessionId, SandboxType sandboxType) {
+	private ContainerModel provision(String sessionId, SandboxType sandboxType) {
+		long start = System.nanoTime();
+		ContainerModel container = null;
 		try {
-			String imageName = sandboxType.getImageName();
-			String containerName = generateContainerName(sessionId);
+			container = backend.create(sessionId, sandboxType);
+			backend.start(container);
+			backend.awaitReady(container);
 
-			// Allocate ports
-			List<Integer> ports = allocatePorts(sandboxType.getPorts().size()); // Main port and browser port
+			container.setBearerToken(config.getBearerToken());
 
-			// Build port bindings and environment variables and mounts
-			PortBinding[] portBindings = buildPortBindings(ports, sandboxType.getPorts());
-			List<String> environmentVariables = buildEnvironmentVariables(sessionId);
-			this.processSandboxSpecEnv(environmentVariables, portBindings, sandboxType);
-			List<Mount> mounts = buildMounts();
-
-			// Create container
-			CreateContainerResponse container = dockerClient.createContainerCmd(imageName)
-				.withName(containerName)
-				.withEnv(environmentVariables)
-				.withHostConfig(HostConfig.newHostConfig()
-				.withMounts(mounts)
-				.withPortBindings(portBindings)
-				// .withAutoRemove(config.isAutoCleanup())
-				.withNetworkMode("bridge"))
-				.exec();
-
-			String containerId = container.getId();
-
-			// Start container
-			dockerClient.startContainerCmd(containerId).exec();
-
-			// Wait for container to be ready
-			waitForContainerReady(containerId, ports.get(0));
-
-			// Create container model
-			ContainerModel model = new ContainerModel(sessionId, containerId, "http://localhost:" + ports.get(0), ports, sandboxType.getValue());
-
-			model.setBearerToken(config.getBearerToken());
-			activeContainers.put(sessionId, model);
-
-			logger.info("Container created successfully: {} for session: {}", containerId, sessionId);
-			return model;
+			logger.info("Container created successfully: {} for session: {} in {} ms", container.getContainerId(),
+					sessionId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return container;
 
 		}
+		catch (SandboxAdmissionException e) {
+			logger.warn("Sandbox for session {} not admitted: {}", sessionId, e.getMessage());
+			throw e;
+		}
 		catch (Exception e) {
 			logger.error("Failed to create container for session: {}", sessionId, e);
+			if (container != null) {
+				releaseQuietly(container);
+			}
 			throw new RuntimeException("Container creation failed", e);
 		}
 	}
 
 	/**
-	 * Process sandbox specific environment variables
-	 * @param environmentVariables environmentVariables
-	 * @param portBindings portBindings
-	 * @param sandboxType sandboxType
+	 * Start a kernel for the session in a shared container with room, starting a new
+	 * shared container when all are full
 	 */
-	private void processSandboxSpecEnv(List<String> environmentVariables, PortBinding[] portBindings, SandboxType sandboxType){
-		if (sandboxType == SandboxType.BROWSER) {
-			if (portBindings.length >= 3) {
-				String portSpec = portBindings[2].getBinding().getHostPortSpec();
-				environmentVariables.add("DOMAIN=localhost:" + portSpec);
+	private ContainerModel createKernel(String sessionId, SandboxType sandboxType, int density) {
+		long start = System.nanoTime();
+		SharedContainer shared;
+		boolean provisioning = false;
+		synchronized (sharedLock) {
+			shared = claimSlot(sessionId, sandboxType, density);
+			if (shared == null) {
+				shared = new SharedContainer(sandboxType.getValue());
+				shared.sessions.add(sessionId);
+				pendingContainers.add(shared);
+				provisioning = true;
 			}
 		}
+		ContainerModel container = provisioning ? provisionShared(shared, sandboxType) : awaitShared(shared);
+
+		String kernelId = UUID.randomUUID().toString().replace("-", "");
+		try (SandboxHttpClient client = new SandboxHttpClient(container)) {
+			client.startKernel(kernelId);
+		}
+		catch (Exception e) {
+			logger.error("Failed to start kernel for session: {} in container: {}", sessionId,
+					container.getContainerId(), e);
+			releaseSlot(shared, sessionId);
+			throw new RuntimeException("Kernel creation failed", e);
+		}
 
+		ContainerModel kernel = container.forKernel(sessionId, kernelId);
+		activeContainers.put(sessionId, kernel);
+		logger.info("Kernel {} created in container: {} for session: {} in {} ms", kernelId,
+				kernel.getContainerId(), sessionId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return kernel;
 	}
 
 	/**
-	 * Stop and remove container
+	 * Start the container of a pending shared container, failing the sessions waiting
+	 * for it when it does not come up
 	 */
-	public void removeContainer(String sessionId) {
-		ContainerModel container = activeContainers.get(sessionId);
-		if (container != null) {
-			try {
-				// Stop container
-				dockerClient.stopContainerCmd(container.getContainerId()).withTimeout(10).exec();
-
-				// Remove container
-				dockerClient.removeContainerCmd(container.getContainerId()).withForce(true).exec();
-
-				// Release ports
-				container.getPorts().forEach(occupiedPorts::remove);
-
-				activeContainers.remove(sessionId);
-
-				logger.info("Container removed: {} for session: {}", container.getContainerId(), sessionId);
-
-			}
-			catch (Exception e) {
-				logger.error("Failed to remove container for session: {}", sessionId, e);
+	private ContainerModel provisionShared(SharedContainer shared, SandboxType sandboxType) {
+		ContainerModel container;
+		try {
+			container = provision("shared-" + UUID.randomUUID(), sandboxType);
+		}
+		catch (RuntimeException e) {
+			synchronized (sharedLock) {
+				pendingContainers.remove(shared);
 			}
+			shared.ready.completeExceptionally(e);
+			throw e;
+		}
+		synchronized (sharedLock) {
+			pendingContainers.remove(shared);
+			shared.container = container;
+			sharedContainers.put(container.getContainerId(), shared);
 		}
+		shared.ready.complete(container);
+		return container;
 	}
 
 	/**
-	 * Get container information
+	 * Wait for a shared container another session is starting
 	 */
-	public ContainerModel getContainer(String sessionId) {
-		return activeContainers.get(sessionId);
+	private ContainerModel awaitShared(SharedContainer shared) {
+		try {
+			return shared.ready.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
 	}
 
 	/**
-	 * List all active containers
+	 * Take a slot in the fullest shared container of the type that is not full yet,
+	 * counting the ones still starting. Called with {@code sharedLock} held.
+	 * @return the container, {@code null} when all are full
 	 */
-	public Map<String, ContainerModel> listContainers() {
-		return new HashMap<>(activeContainers);
+	private SharedContainer claimSlot(String sessionId, SandboxType sandboxType, int density) {
+		SharedContainer best = null;
+		for (SharedContainer shared : allSharedContainers()) {
+			int sessions = shared.sessions.size();
+			if (shared.sandboxType.equals(sandboxType.getValue()) && sessions < density
+					&& (best == null || sessions > best.sessions.size())) {
+				best = shared;
+			}
+		}
+		if (best != null) {
+			best.sessions.add(sessionId);
+		}
+		return best;
 	}
 
+	private List<SharedContainer> allSharedContainers() {
+		List<SharedContainer> all = new ArrayList<>(sharedContainers.values());
+		all.addAll(pendingContainers);
+		return all;
+	}
 
 	/**
-	 * Generate container name
+	 * Give up a session's slot, removing the shared container once it serves no session
 	 */
-	private String generateContainerName(String sessionId) {
-		return config.getContainerPrefixKey() + sessionId;
+	private void releaseSlot(SharedContainer shared, String sessionId) {
+		synchronized (sharedLock) {
+			shared.sessions.remove(sessionId);
+			if (!shared.sessions.isEmpty()
+					|| !sharedContainers.remove(shared.container.getContainerId(), shared)) {
+				return;
+			}
+		}
+		try {
+			backend.stop(shared.container);
+			backend.remove(shared.container);
+			logger.info("Shared container removed: {}", shared.container.getContainerId());
+		}
+		catch (Exception e) {
+			logger.error("Failed to remove shared container: {}", shared.container.getContainerId(), e);
+		}
 	}
 
 	/**
-	 * Allocate available ports
+	 * Stop and remove container, or shut down the session's kernel in dense mode
 	 */
-	private List<Integer> allocatePorts(int count) {
-		List<Integer> ports = new ArrayList<>();
-		List<Integer> portRange = config.getPortRange();
-		int minPort = portRange.get(0);
-		int maxPort = portRange.get(1);
-
-		for (int i = 0; i < count; i++) {
-			int port = findAvailablePort(minPort, maxPort);
-			ports.add(port);
-			occupiedPorts.add(port);
+	public void removeContainer(String sessionId) {
+		ContainerModel container = activeContainers.remove(sessionId);
+		if (container != null && container.getKernelId() != null) {
+			removeKernel(container);
+		}
+		else if (container != null) {
+			try {
+				backend.stop(container);
+				backend.remove(container);
+				logger.info("Container removed: {} for session: {}", container.getContainerId(), sessionId);
+			}
+			catch (Exception e) {
+				logger.error("Failed to remove container for session: {}", sessionId, e);
+			}
 		}
+	}
 
-		return ports;
+	private void removeKernel(ContainerModel kernel) {
+		SharedContainer shared = sharedContainers.get(kernel.getContainerId());
+		if (shared == null) {
+			return;
+		}
+		try (SandboxHttpClient client = new SandboxHttpClient(shared.container)) {
+			client.shutdownKernel(kernel.getKernelId());
+			logger.info("Kernel {} removed from container: {} for session: {}", kernel.getKernelId(),
+					kernel.getContainerId(), kernel.getSessionId());
+		}
+		catch (Exception e) {
+			logger.error("Failed to shut down kernel for session: {}", kernel.getSessionId(), e);
+		}
+		releaseSlot(shared, kernel.getSessionId());
 	}
 
 	/**
-	 * Find available port in range
+	 * Get container information
 	 */
-	private int findAvailablePort(int minPort, int maxPort) {
-		for (int i = 0; i < 100; i++) { // Try 100 times
-			int port = ThreadLocalRandom.current().nextInt(minPort, maxPort + 1);
-			if (!occupiedPorts.contains(port)) {
-				return port;
-			}
-		}
-		throw new RuntimeException("No available ports in range " + minPort + "-" + maxPort);
+	public ContainerModel getContainer(String sessionId) {
+		return activeContainers.get(sessionId);
 	}
 
 	/**
-	 * Build port bindings
+	 * List all active containers
 	 */
-	private PortBinding[] buildPortBindings(List<Integer> ports, List<Integer> occupiedPorts) {
-		List<PortBinding> bindings = new ArrayList<>();
-		for(int i = 0 ; i < ports.size() ; i++) {
-			bindings.add(new PortBinding(Ports.Binding.bindPort(ports.get(i)), ExposedPort.tcp(occupiedPorts.get(i))));
-		}
-		return bindings.toArray(new PortBinding[0]);
+	public Map<String, ContainerModel> listContainers() {
+		return new HashMap<>(activeContainers);
 	}
 
-	private List<Mount> buildMounts() {
-		List<Mount> mounts = new ArrayList<>();
-		if (config.getDefaultMountDir() != null && !config.getDefaultMountDir().isEmpty()) {
-			String hostDir = config.getDefaultMountDir();
-			String containerDir = "/workspace";
-			Mount mount = new Mount().withType(MountType.BIND)
-				.withSource(hostDir)
-				.withTarget(containerDir)
-				.withReadOnly(false);
-			mounts.add(mount);
-		}
-		return mounts;
+	/**
+	 * Current backend state of a session's container
+	 */
+	public SandboxState inspectContainer(String sessionId) {
+		ContainerModel container = activeContainers.get(sessionId);
+		return container == null ? SandboxState.MISSING : backend.inspect(container);
 	}
 
 	/**
-	 * Build environment variables
+	 * Backend specific state, such as image pulls in progress
 	 */
-	private List<String> buildEnvironmentVariables(String sessionId) {
-		List<String> env = new ArrayList<>();
-		env.add("SESSION_ID=" + sessionId);
-		env.add("SECRET_TOKEN=" + config.getBearerToken());
-		env.add("WORKSPACE_DIR=/workspace");
-		// Add sandbox type specific envs
-		if (config.getDockerEnvironment() != null) {
-			config.getDockerEnvironment().forEach((key, value) -> env.add(key + "=" + value));
-		}
-		return env;
+	public Map<String, Object> getBackendStatus() {
+		return backend.getStatus();
 	}
 
 	/**
-	 * Wait for container to be ready
+	 * Forget sessions whose sandbox died, so the next request starts a fresh one
 	 */
-	private void waitForContainerReady(String containerId, int port) {
-		int maxAttempts = 30;
-		int attempt = 0;
-
-		while (attempt < maxAttempts) {
-			try {
-				// Check if container is running
-				InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
-
-				if (Boolean.TRUE.equals(containerInfo.getState().getRunning())) {
-					// Additional check: try to connect to the service
-					Thread.sleep(1000); // Wait a bit more for service to start
-					return;
-				}
-
-				Thread.sleep(1000);
-				attempt++;
-
-			}
-			catch (Exception e) {
-				logger.debug("Waiting for container to be ready, attempt: {}", attempt + 1);
-				try {
-					Thread.sleep(1000);
-				}
-				catch (InterruptedException ie) {
-					Thread.currentThread().interrupt();
-					throw new RuntimeException("Interrupted while waiting for container", ie);
+	private void onBackendEvent(SandboxEvent event) {
+		if (event.state() != SandboxState.STOPPED && event.state() != SandboxState.MISSING) {
+			return;
+		}
+		for (ContainerModel container : activeContainers.values()) {
+			if (container.getContainerId().equals(event.containerId())
+					&& activeContainers.remove(container.getSessionId(), container)) {
+				logger.warn("Container {} for session {} is {}, releasing it", event.containerId(),
+						container.getSessionId(), event.state());
+				if (container.getKernelId() == null) {
+					releaseQuietly(container);
 				}
-				attempt++;
 			}
 		}
-
-		throw new RuntimeException("Container failed to become ready within timeout");
+		SharedContainer shared = sharedContainers.remove(event.containerId());
+		if (shared != null) {
+			releaseQuietly(shared.container);
+		}
 	}
 
-	/**
-	 * Generate runtime token
-	 */
-	private String generateToken() {
-		return UUID.randomUUID().toString().replace("-", "");
+	private void releaseQuietly(ContainerModel container) {
+		try {
+			backend.remove(container);
+		}
+		catch (Exception e) {
+			logger.warn("Failed to release container: {}", container.getContainerId(), e);
+		}
 	}
 
 	/**
@@ -354,4 +396,26 @@ public class ContainerService {
 		logger.info("Container cleanup completed");
 	}
 
+	/**
+	 * Container hosting kernels, with the sessions they serve
+	 */
+	private static class SharedContainer {
+
+		private final String sandboxType;
+
+		/** Completed with the container once it is up */
+		private final CompletableFuture<ContainerModel> ready = new CompletableFuture<>();
+
+		/** Set once the container is up, guarded by {@code sharedLock} until then */
+		private ContainerModel container;
+
+		/** Guarded by {@code sharedLock} */
+		private final Set<String> sessions = new HashSet<>();
+
+		SharedContainer(String sandboxType) {
+			this.sandboxType = sandboxType;
+		}
+
+	}
+
 }
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Info;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Docker endpoint sandboxes can be placed on, with its own client, published ports,
+ * load and the memory and CPU reserved by the sandboxes placed on it
+ */
+public class DockerHost implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerHost.class);
+
+	private final String name;
+
+	private final String address;
+
+	private final DockerClient client;
+
+	private final Set<Integer> occupiedPorts = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger activeContainers = new AtomicInteger();
+
+	private final AtomicLong reservedMemory = new AtomicLong();
+
+	private final AtomicLong reservedNanoCpus = new AtomicLong();
+
+	private volatile long memoryTotal;
+
+	private volatile long nanoCpusTotal;
+
+	private volatile boolean healthy = true;
+
+	private volatile long lastFailure;
+
+	/**
+	 * Constructor
+	 * @param name Docker endpoint, such as {@code unix:///var/run/docker.sock} or
+	 * {@code tcp://10.0.0.5:2375}
+	 * @param client client connected to the endpoint
+	 */
+	public DockerHost(String name, DockerClient client) {
+		this.name = name;
+		this.address = resolveAddress(name);
+		this.client = client;
+	}
+
+	/**
+	 * Address published container ports are reached at: the endpoint's host for TCP
+	 * endpoints, {@code localhost} for local sockets
+	 */
+	private static String resolveAddress(String endpoint) {
+		try {
+			URI uri = URI.create(endpoint);
+			if (("tcp".equals(uri.getScheme()) || "https".equals(uri.getScheme()) || "http".equals(uri.getScheme()))
+					&& uri.getHost() != null) {
+				return uri.getHost();
+			}
+		}
+		catch (IllegalArgumentException e) {
+			logger.debug("Docker endpoint is not a URI: {}", endpoint);
+		}
+		return "localhost";
+	}
+
+	/**
+	 * Ping the daemon and refresh its capacity, marking the host unhealthy on failure
+	 * @return whether the host is healthy
+	 */
+	public boolean ping() {
+		if (probe()) {
+			healthy = true;
+		}
+		else {
+			markUnhealthy();
+		}
+		return healthy;
+	}
+
+	/**
+	 * Ping the daemon and refresh its capacity without changing the host's health
+	 * @return whether the daemon answered
+	 */
+	public boolean probe() {
+		try {
+			client.pingCmd().exec();
+			Info info = client.infoCmd().exec();
+			if (info.getMemTotal() != null) {
+				memoryTotal = info.getMemTotal();
+			}
+			if (info.getNCPU() != null) {
+				nanoCpusTotal = info.getNCPU() * 1_000_000_000L;
+			}
+			return true;
+		}
+		catch (Exception e) {
+			logger.warn("Docker host {} is unreachable: {}", name, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Put the host back into placement
+	 */
+	public void markHealthy() {
+		healthy = true;
+	}
+
+	/**
+	 * Take the host out of placement until it answers a ping again
+	 */
+	public void markUnhealthy() {
+		healthy = false;
+		lastFailure = System.currentTimeMillis();
+	}
+
+	/**
+	 * Allocate free host ports from the given range
+	 */
+	public List<Integer> allocatePorts(int count, int minPort, int maxPort) {
+		List<Integer> ports = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ports.add(allocatePort(minPort, maxPort));
+		}
+		return ports;
+	}
+
+	private int allocatePort(int minPort, int maxPort) {
+		for (int i = 0; i < 100; i++) { // Try 100 times
+			int port = ThreadLocalRandom.current().nextInt(minPort, maxPort + 1);
+			if (occupiedPorts.add(port)) {
+				return port;
+			}
+		}
+		throw new RuntimeException("No available ports in range " + minPort + "-" + maxPort + " on " + name);
+	}
+
+	/**
+	 * Release ports allocated on this host
+	 */
+	public void releasePorts(List<Integer> ports) {
+		ports.forEach(occupiedPorts::remove);
+	}
+
+	/**
+	 * Count a container placed on this host
+	 */
+	public void containerAdded() {
+		activeContainers.incrementAndGet();
+	}
+
+	/**
+	 * Count a container removed from this host
+	 */
+	public void containerRemoved() {
+		activeContainers.updateAndGet(count -> Math.max(0, count - 1));
+	}
+
+	/**
+	 * Reserve capacity for a container placed on this host
+	 * @param memory memory in bytes
+	 * @param nanoCpus CPU in units of 10<sup>-9</sup> CPUs
+	 */
+	public void reserve(long memory, long nanoCpus) {
+		containerAdded();
+		reservedMemory.addAndGet(memory);
+		reservedNanoCpus.addAndGet(nanoCpus);
+	}
+
+	/**
+	 * Return capacity reserved by {@link #reserve}
+	 */
+	public void release(long memory, long nanoCpus) {
+		containerRemoved();
+		reservedMemory.updateAndGet(reserved -> Math.max(0, reserved - memory));
+		reservedNanoCpus.updateAndGet(reserved -> Math.max(0, reserved - nanoCpus));
+	}
+
+	/**
+	 * Whether a container fits in the capacity not reserved yet. Capacity the daemon
+	 * did not report is not limited.
+	 */
+	public boolean hasRoomFor(long memory, long nanoCpus) {
+		return (memoryTotal == 0 || reservedMemory.get() + memory <= memoryTotal)
+				&& (nanoCpusTotal == 0 || reservedNanoCpus.get() + nanoCpus <= nanoCpusTotal);
+	}
+
+	/**
+	 * Whether a container would fit on the host once it is empty
+	 */
+	public boolean couldFit(long memory, long nanoCpus) {
+		return (memoryTotal == 0 || memory <= memoryTotal) && (nanoCpusTotal == 0 || nanoCpus <= nanoCpusTotal);
+	}
+
+	/**
+	 * Memory not reserved by containers yet
+	 */
+	public long getFreeMemory() {
+		return memoryTotal - reservedMemory.get();
+	}
+
+	/**
+	 * Whether the daemon runs on this machine, so host paths such as socket
+	 * directories are shared with it
+	 */
+	public boolean isLocal() {
+		return "localhost".equals(address);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	public DockerClient getClient() {
+		return client;
+	}
+
+	public int getActiveContainers() {
+		return activeContainers.get();
+	}
+
+	public long getMemoryTotal() {
+		return memoryTotal;
+	}
+
+	void setMemoryTotal(long memoryTotal) {
+		this.memoryTotal = memoryTotal;
+	}
+
+	public long getNanoCpusTotal() {
+		return nanoCpusTotal;
+	}
+
+	void setNanoCpusTotal(long nanoCpusTotal) {
+		this.nanoCpusTotal = nanoCpusTotal;
+	}
+
+	public long getReservedMemory() {
+		return reservedMemory.get();
+	}
+
+	public long getReservedNanoCpus() {
+		return reservedNanoCpus.get();
+	}
+
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	public long getLastFailure() {
+		return lastFailure;
+	}
+
+	@Override
+	public void close() {
+		try {
+			client.close();
+		}
+		catch (Exception e) {
+			logger.error("Error closing Docker client for {}", name, e);
+		}
+	}
+
+}
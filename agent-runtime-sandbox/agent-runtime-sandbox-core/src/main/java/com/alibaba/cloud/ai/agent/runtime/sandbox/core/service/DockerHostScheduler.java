@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxAdmissionException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.ResourceProfile;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Places sandboxes on one of several Docker hosts.
+ *
+ * <p>
+ * A host is chosen among the healthy ones either by fewest active containers or by most
+ * memory left after the containers already placed. A host that fails is skipped and
+ * pinged again in the background after a cooldown, readmitting it once the daemon
+ * answers and the readmission hook has set it up again. Placement itself never waits on
+ * a daemon.
+ *
+ * <p>
+ * Placement doubles as admission control: each sandbox reserves the memory and CPU of
+ * its {@link ResourceProfile} on its host, and a host whose reservations would exceed
+ * its capacity takes no more sandboxes. When no host has room, the create waits for a
+ * sandbox to be released or is rejected with a {@link SandboxAdmissionException}.
+ */
+public class DockerHostScheduler implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerHostScheduler.class);
+
+	public static final String LEAST_CONTAINERS = "least-containers";
+
+	public static final String MOST_MEMORY = "most-memory";
+
+	private static final long UNHEALTHY_COOLDOWN_MILLIS = 30_000;
+
+	private final List<DockerHost> hosts;
+
+	private final String placementStrategy;
+
+	private final long containerMemory;
+
+	private ScheduledExecutorService healthChecker;
+
+	private volatile Consumer<DockerHost> readmissionHook = host -> {
+	};
+
+	/**
+	 * Constructor
+	 * @param hosts hosts to place on
+	 * @param placementStrategy {@link #LEAST_CONTAINERS} or {@link #MOST_MEMORY}
+	 * @param containerMemory memory reserved per container without a memory limit, in
+	 * bytes
+	 */
+	public DockerHostScheduler(List<DockerHost> hosts, String placementStrategy, long containerMemory) {
+		if (hosts.isEmpty()) {
+			throw new IllegalArgumentException("At least one Docker host is required");
+		}
+		this.hosts = List.copyOf(hosts);
+		this.placementStrategy = placementStrategy;
+		this.containerMemory = containerMemory;
+	}
+
+	/**
+	 * Create a scheduler over the configured Docker hosts, {@code docker-hosts} or the
+	 * single {@code docker-host}
+	 */
+	public static DockerHostScheduler create(SandboxProperties config) {
+		List<String> endpoints = config.getDockerHosts() != null && !config.getDockerHosts().isEmpty()
+				? config.getDockerHosts() : List.of(config.getDockerHost());
+		List<DockerHost> hosts = new ArrayList<>();
+		for (String endpoint : endpoints) {
+			hosts.add(new DockerHost(endpoint, createClient(endpoint)));
+		}
+		DockerHostScheduler scheduler = new DockerHostScheduler(hosts, config.getPlacementStrategy(),
+				config.getContainerMemoryEstimate().toBytes());
+		scheduler.startHealthChecks();
+		return scheduler;
+	}
+
+	private static DockerClient createClient(String endpoint) {
+		DefaultDockerClientConfig dockerConfig = DefaultDockerClientConfig.createDefaultConfigBuilder()
+			.withDockerHost(endpoint)
+			.build();
+
+		ApacheDockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+			.dockerHost(dockerConfig.getDockerHost())
+			.sslConfig(dockerConfig.getSSLConfig())
+			.maxConnections(100)
+			.connectionTimeout(Duration.ofSeconds(30))
+			.responseTimeout(Duration.ofSeconds(45))
+			.build();
+
+		return DockerClientBuilder.getInstance(dockerConfig).withDockerHttpClient(httpClient).build();
+	}
+
+	/**
+	 * Choose the host for a new sandbox without limits, failing when no host has room
+	 */
+	public DockerHost select() {
+		return select(new ResourceProfile(), Duration.ZERO);
+	}
+
+	/**
+	 * Choose a host among all hosts, see {@link #select(ResourceProfile, Duration, Predicate)}
+	 */
+	public DockerHost select(ResourceProfile profile, Duration timeout) {
+		return select(profile, timeout, host -> true);
+	}
+
+	/**
+	 * Choose the host for a new sandbox and reserve the sandbox's resources on it, so
+	 * concurrent placements see each other
+	 * @param profile resources the sandbox is limited to
+	 * @param timeout how long to wait for a host to have room
+	 * @param eligible hosts the sandbox may be placed on, e.g. those holding its image
+	 * @throws SandboxAdmissionException when no host has room within the timeout
+	 */
+	public synchronized DockerHost select(ResourceProfile profile, Duration timeout, Predicate<DockerHost> eligible) {
+		long memory = reservedMemory(profile);
+		long nanoCpus = profile.getNanoCpus();
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (true) {
+			List<DockerHost> candidates = healthyHosts().stream().filter(eligible).toList();
+			if (candidates.isEmpty()) {
+				throw new RuntimeException("No healthy Docker host available");
+			}
+			if (candidates.stream().noneMatch(host -> host.couldFit(memory, nanoCpus))) {
+				throw new SandboxAdmissionException(String.format(
+						"Sandbox needing %d bytes of memory and %.2f CPUs exceeds every Docker host", memory,
+						nanoCpus / 1e9));
+			}
+
+			List<DockerHost> admissible = candidates.stream()
+				.filter(host -> host.hasRoomFor(memory, nanoCpus))
+				.toList();
+			if (!admissible.isEmpty()) {
+				Comparator<DockerHost> order = MOST_MEMORY.equalsIgnoreCase(placementStrategy)
+						? Comparator.comparingLong(DockerHost::getFreeMemory).reversed()
+						: Comparator.comparingInt(DockerHost::getActiveContainers);
+				DockerHost selected = admissible.stream().min(order).orElseThrow();
+				selected.reserve(memory, nanoCpus);
+				logger.debug("Placing sandbox on Docker host: {}", selected.getName());
+				return selected;
+			}
+
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new SandboxAdmissionException("All Docker hosts are at capacity");
+			}
+			// Readmitted hosts notify, the timeout only bounds the wait
+			try {
+				wait(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, 1000));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SandboxAdmissionException("Interrupted while waiting for Docker host capacity");
+			}
+		}
+	}
+
+	/**
+	 * Return the resources of a removed sandbox to its host and wake up waiting creates
+	 */
+	public synchronized void release(DockerHost host, ResourceProfile profile) {
+		host.release(reservedMemory(profile), profile.getNanoCpus());
+		notifyAll();
+	}
+
+	private long reservedMemory(ResourceProfile profile) {
+		return profile.getMemoryBytes() > 0 ? profile.getMemoryBytes() : containerMemory;
+	}
+
+	private List<DockerHost> healthyHosts() {
+		return hosts.stream().filter(DockerHost::isHealthy).toList();
+	}
+
+	/**
+	 * Ping unhealthy hosts whose cooldown elapsed from a background thread, outside the
+	 * placement lock
+	 */
+	public void startHealthChecks() {
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "docker-host-health");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthChecker.scheduleWithFixedDelay(this::checkUnhealthyHosts, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Set up hosts before they are readmitted, e.g. recreate their network or resubscribe
+	 * to their events after a daemon restart. A host whose hook fails stays out of
+	 * placement for another cooldown.
+	 */
+	public void setReadmissionHook(Consumer<DockerHost> readmissionHook) {
+		this.readmissionHook = readmissionHook;
+	}
+
+	private void checkUnhealthyHosts() {
+		long now = System.currentTimeMillis();
+		boolean readmitted = false;
+		for (DockerHost host : hosts) {
+			if (host.isHealthy() || now - host.getLastFailure() < UNHEALTHY_COOLDOWN_MILLIS) {
+				continue;
+			}
+			if (!host.probe()) {
+				host.markUnhealthy();
+				continue;
+			}
+			try {
+				readmissionHook.accept(host);
+			}
+			catch (Exception e) {
+				logger.warn("Failed to set up Docker host {} again: {}", host.getName(), e.getMessage());
+				host.markUnhealthy();
+				continue;
+			}
+			host.markHealthy();
+			logger.info("Docker host {} is reachable again", host.getName());
+			readmitted = true;
+		}
+		if (readmitted) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Get a host by name, the first host when the name is unknown
+	 */
+	public DockerHost getHost(String name) {
+		return hosts.stream().filter(host -> host.getName().equals(name)).findFirst().orElse(hosts.get(0));
+	}
+
+	/**
+	 * Get all hosts
+	 */
+	public List<DockerHost> getHosts() {
+		return hosts;
+	}
+
+	@Override
+	public void close() {
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+		}
+		hosts.forEach(DockerHost::close);
+	}
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.github.dockerjava.api.command.InspectImageResponse;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.model.ResponseItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the sandbox images present on every Docker host, so creating a sandbox never
+ * waits for a pull.
+ *
+ * <p>
+ * Images are checked and pulled in the background when the backend starts and pulled
+ * again every refresh interval to pick up new versions of their tags. Each tag is
+ * resolved to the digest present on the host, and sandboxes are created from that
+ * digest: a refresh only switches new sandboxes to the new digest once its pull has
+ * completed. Locally built images, which have no registry digest, are used as they are
+ * and never pulled again. A failed pull is retried with exponential backoff, up to the
+ * refresh interval.
+ */
+public class DockerImageManager implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerImageManager.class);
+
+	private static final long CHECK_INTERVAL_SECONDS = 30;
+
+	private final List<DockerHost> hosts;
+
+	private final List<String> images;
+
+	private final Duration refreshInterval;
+
+	private final Map<String, ImageStatus> statuses = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Constructor
+	 * @param hosts hosts to keep the images on
+	 * @param images image references, e.g. {@code agentruntime/sandbox:base}
+	 * @param refreshInterval how often to pull the images again
+	 */
+	public DockerImageManager(List<DockerHost> hosts, List<String> images, Duration refreshInterval) {
+		this.hosts = List.copyOf(hosts);
+		this.images = List.copyOf(images);
+		this.refreshInterval = refreshInterval;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newScheduledThreadPool(Math.min(4, this.hosts.size() * this.images.size()), task -> {
+			Thread thread = new Thread(task, "sandbox-image-pull-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (DockerHost host : this.hosts) {
+			for (String image : this.images) {
+				statuses.put(key(host, image), new ImageStatus(host.getName(), image));
+			}
+		}
+	}
+
+	/**
+	 * Start warming the images on all hosts, returning at once
+	 */
+	public void start() {
+		executor.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Schedule a warm-up for every image that is missing or due for a refresh
+	 */
+	private void check() {
+		long now = System.currentTimeMillis();
+		for (DockerHost host : hosts) {
+			if (!host.isHealthy()) {
+				continue;
+			}
+			for (String image : images) {
+				ImageStatus status = statuses.get(key(host, image));
+				if (status.pulling || now < status.retryAt) {
+					continue;
+				}
+				if (status.reference == null) {
+					status.pulling = true;
+					executor.execute(() -> warm(host, status, false));
+				}
+				else if (!status.local && now - status.lastPulled >= refreshInterval.toMillis()) {
+					status.pulling = true;
+					executor.execute(() -> warm(host, status, true));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolve the image on the host, pulling it when it is missing or on refresh
+	 */
+	private void warm(DockerHost host, ImageStatus status, boolean refresh) {
+		try {
+			if (!refresh && resolve(host, status)) {
+				logger.info("Sandbox image {} is present on {}: {}", status.image, host.getName(), status.reference);
+				return;
+			}
+			long start = System.currentTimeMillis();
+			pull(host, status);
+			resolve(host, status);
+			status.lastPulled = System.currentTimeMillis();
+			status.failures = 0;
+			status.retryAt = 0;
+			logger.info("Pulled sandbox image {} on {} in {} ms: {}", status.image, host.getName(),
+					status.lastPulled - start, status.reference);
+		}
+		catch (Exception e) {
+			long backoff = Math.min(TimeUnit.SECONDS.toMillis(CHECK_INTERVAL_SECONDS) << Math.min(status.failures, 10),
+					refreshInterval.toMillis());
+			status.failures++;
+			status.retryAt = System.currentTimeMillis() + backoff;
+			status.error = e.getMessage();
+			logger.warn("Failed to pull sandbox image {} on {}, retrying in {} s: {}", status.image, host.getName(),
+					TimeUnit.MILLISECONDS.toSeconds(backoff), e.getMessage());
+		}
+		finally {
+			status.pulling = false;
+		}
+	}
+
+	/**
+	 * Pin the image to its digest on the host
+	 * @return whether the image is present
+	 */
+	private boolean resolve(DockerHost host, ImageStatus status) {
+		InspectImageResponse response;
+		try {
+			response = host.getClient().inspectImageCmd(status.image).exec();
+		}
+		catch (NotFoundException e) {
+			return false;
+		}
+		String repository = repositoryOf(status.image);
+		// Locally built images have no repo digest and are pinned by image ID
+		String digest = response.getRepoDigests() == null ? null
+				: response.getRepoDigests()
+					.stream()
+					.filter(candidate -> candidate.startsWith(repository + "@"))
+					.findFirst()
+					.orElse(null);
+		status.local = digest == null;
+		status.reference = digest != null ? digest : response.getId();
+		status.error = null;
+		if (status.lastPulled == 0) {
+			status.lastPulled = System.currentTimeMillis();
+		}
+		return true;
+	}
+
+	private void pull(DockerHost host, ImageStatus status) throws InterruptedException {
+		status.layers.clear();
+		String repository = repositoryOf(status.image);
+		String tag = status.image.length() > repository.length() ? status.image.substring(repository.length() + 1)
+				: "latest";
+		host.getClient().pullImageCmd(repository).withTag(tag).exec(new PullImageResultCallback() {
+			@Override
+			public void onNext(PullResponseItem item) {
+				ResponseItem.ProgressDetail detail = item.getProgressDetail();
+				if (item.getId() != null && detail != null && detail.getTotal() != null && detail.getTotal() > 0) {
+					long current = detail.getCurrent() == null ? 0 : detail.getCurrent();
+					status.layers.put(item.getId(), new long[] { current, detail.getTotal() });
+				}
+				super.onNext(item);
+			}
+		}).awaitCompletion();
+	}
+
+	/**
+	 * Strip the tag, keeping a registry port
+	 */
+	private static String repositoryOf(String image) {
+		int colon = image.lastIndexOf(':');
+		return colon > image.lastIndexOf('/') ? image.substring(0, colon) : image;
+	}
+
+	private static String key(DockerHost host, String image) {
+		return host.getName() + "|" + image;
+	}
+
+	/**
+	 * Digest-pinned reference of the image on the host, {@code null} while it is not
+	 * present there
+	 */
+	public String getReference(DockerHost host, String image) {
+		ImageStatus status = statuses.get(key(host, image));
+		return status == null ? null : status.reference;
+	}
+
+	/**
+	 * Whether the image is kept warm by this manager
+	 */
+	public boolean manages(String image) {
+		return images.contains(image);
+	}
+
+	/**
+	 * Whether sandboxes of the image can be created on the host without a pull
+	 */
+	public boolean isReady(DockerHost host, String image) {
+		return getReference(host, image) != null;
+	}
+
+	/**
+	 * Whether the image is ready on at least one healthy host
+	 */
+	public boolean isReadyAnywhere(String image) {
+		return hosts.stream().anyMatch(host -> host.isHealthy() && isReady(host, image));
+	}
+
+	/**
+	 * Forget an image that disappeared from a host, e.g. pruned, and pull it again
+	 */
+	public void invalidate(DockerHost host, String image) {
+		ImageStatus status = statuses.get(key(host, image));
+		if (status != null && status.reference != null) {
+			logger.warn("Sandbox image {} is gone from {}, pulling it again", image, host.getName());
+			status.reference = null;
+			executor.execute(this::check);
+		}
+	}
+
+	/**
+	 * Human readable state of an image across the hosts, e.g. for rejected creates
+	 */
+	public String describe(String image) {
+		List<String> states = new ArrayList<>();
+		for (DockerHost host : hosts) {
+			ImageStatus status = statuses.get(key(host, image));
+			states.add(host.getName() + ": " + status.toMap().get("state") + progressOf(status));
+		}
+		return image + " is warming (" + String.join(", ", states) + ")";
+	}
+
+	private static String progressOf(ImageStatus status) {
+		long[] progress = status.progress();
+		return status.pulling && progress[1] > 0 ? String.format(" %d%%", progress[0] * 100 / progress[1]) : "";
+	}
+
+	/**
+	 * State, pinned reference and pull progress of every image on every host
+	 */
+	public List<Map<String, Object>> getStatus() {
+		return statuses.values().stream().map(ImageStatus::toMap).toList();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Warm-up state of one image on one host
+	 */
+	private static class ImageStatus {
+
+		private final String host;
+
+		private final String image;
+
+		/** Layer ID to downloaded and total bytes of the running pull */
+		private final Map<String, long[]> layers = new ConcurrentHashMap<>();
+
+		private volatile String reference;
+
+		private volatile boolean pulling;
+
+		private volatile long lastPulled;
+
+		private volatile String error;
+
+		/** Built on the host rather than pulled, so never refreshed */
+		private volatile boolean local;
+
+		private volatile int failures;
+
+		/** No pull before this time after a failure */
+		private volatile long retryAt;
+
+		ImageStatus(String host, String image) {
+			this.host = host;
+			this.image = image;
+		}
+
+		long[] progress() {
+			long current = 0;
+			long total = 0;
+			for (long[] layer : layers.values()) {
+				current += layer[0];
+				total += layer[1];
+			}
+			return new long[] { current, total };
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("host", host);
+			map.put("image", image);
+			String state;
+			if (reference != null) {
+				state = "ready";
+			}
+			else if (pulling) {
+				state = "pulling";
+			}
+			else {
+				state = error != null ? "failed" : "pending";
+			}
+			map.put("state", state);
+			if (reference != null) {
+				map.put("reference", reference);
+			}
+			if (pulling) {
+				long[] progress = progress();
+				map.put("downloadedBytes", progress[0]);
+				map.put("totalBytes", progress[1]);
+			}
+			if (error != null) {
+				map.put("error", error);
+			}
+			return map;
+		}
+
+	}
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.WaitContainerResultCallback;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Mount;
+import com.github.dockerjava.api.model.MountType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Package caches shared by all sandboxes on a Docker host, so agents installing the same
+ * packages over and over do not download and build them in every fresh container.
+ *
+ * <p>
+ * Each host keeps two named volumes, mounted read-only into every sandbox so one session
+ * cannot tamper with packages another one installs:
+ * <ul>
+ * <li>a pip wheelhouse, picked up through {@code PIP_FIND_LINKS}: pip installs the
+ * prebuilt wheels without downloading or compiling them</li>
+ * <li>an npm cache, which npm cannot use read-only; the sandbox copies it into its own
+ * cache at start, see {@code AGENT_RUNTIME_NPM_CACHE_SEED}</li>
+ * </ul>
+ * The volumes are populated in the background from the configured requirements by a
+ * one-shot container per host, running the sandbox image that provides the package
+ * manager.
+ */
+public class DockerPackageCache implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerPackageCache.class);
+
+	public static final String PIP_VOLUME = "agent-runtime-pip-cache";
+
+	public static final String NPM_VOLUME = "agent-runtime-npm-cache";
+
+	public static final String PIP_CACHE_DIR = "/opt/agent-runtime/cache/pip";
+
+	public static final String NPM_CACHE_DIR = "/opt/agent-runtime/cache/npm";
+
+	private static final String POPULATE_DIR = "/cache";
+
+	private static final long RETRY_SECONDS = 30;
+
+	private static final long POPULATE_TIMEOUT_MINUTES = 30;
+
+	private final List<DockerHost> hosts;
+
+	private final List<String> pipRequirements;
+
+	private final List<String> npmPackages;
+
+	private final DockerImageManager imageManager;
+
+	private final Set<String> populatedHosts = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, String> errors = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "sandbox-package-cache");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Constructor
+	 * @param hosts hosts to keep caches on
+	 * @param pipRequirements pip requirement specifiers, e.g. {@code pandas==2.0.3}
+	 * @param npmPackages npm package specs, e.g. {@code typescript@5.4.5}
+	 * @param imageManager image manager to wait for the sandbox images, or {@code null}
+	 */
+	public DockerPackageCache(List<DockerHost> hosts, List<String> pipRequirements, List<String> npmPackages,
+			DockerImageManager imageManager) {
+		this.hosts = List.copyOf(hosts);
+		this.pipRequirements = List.copyOf(pipRequirements);
+		this.npmPackages = List.copyOf(npmPackages);
+		this.imageManager = imageManager;
+	}
+
+	/**
+	 * Start populating the caches on all hosts, returning at once. Hosts that are down or
+	 * lack the sandbox images are retried until they are populated.
+	 */
+	public void start() {
+		executor.scheduleWithFixedDelay(this::populatePending, 0, RETRY_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private void populatePending() {
+		for (DockerHost host : hosts) {
+			if (populatedHosts.contains(host.getName()) || !host.isHealthy()) {
+				continue;
+			}
+			try {
+				populate(host);
+				populatedHosts.add(host.getName());
+				errors.remove(host.getName());
+			}
+			catch (Exception e) {
+				logger.warn("Failed to populate package caches on {}: {}", host.getName(), e.getMessage());
+				errors.put(host.getName(), String.valueOf(e.getMessage()));
+			}
+		}
+		if (populatedHosts.size() == hosts.size()) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Create the cache volumes on a host and fill them
+	 */
+	private void populate(DockerHost host) throws InterruptedException {
+		DockerClient client = host.getClient();
+		client.createVolumeCmd().withName(PIP_VOLUME).exec();
+		client.createVolumeCmd().withName(NPM_VOLUME).exec();
+
+		long start = System.currentTimeMillis();
+		if (!pipRequirements.isEmpty()) {
+			List<String> command = new ArrayList<>(List.of("pip", "wheel", "--find-links", POPULATE_DIR,
+					"--wheel-dir", POPULATE_DIR));
+			command.addAll(pipRequirements);
+			run(host, SandboxType.BASE, PIP_VOLUME, command);
+		}
+		if (!npmPackages.isEmpty()) {
+			List<String> command = new ArrayList<>(List.of("npm", "cache", "add", "--cache", POPULATE_DIR));
+			command.addAll(npmPackages);
+			run(host, SandboxType.FILESYSTEM, NPM_VOLUME, command);
+		}
+		logger.info("Populated package caches on {} with {} pip and {} npm packages in {} ms", host.getName(),
+				pipRequirements.size(), npmPackages.size(), System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Run a command in a throwaway container of the sandbox image with the cache volume
+	 * mounted writable
+	 */
+	private void run(DockerHost host, SandboxType sandboxType, String volume, List<String> command)
+			throws InterruptedException {
+		String image = sandboxType.getImageName();
+		if (imageManager != null && imageManager.manages(image)) {
+			image = imageManager.getReference(host, image);
+			if (image == null) {
+				throw new IllegalStateException(sandboxType.getImageName() + " is not pulled yet");
+			}
+		}
+
+		DockerClient client = host.getClient();
+		String containerId = client.createContainerCmd(image)
+			.withUser("0")
+			.withEntrypoint(command)
+			.withHostConfig(HostConfig.newHostConfig()
+				.withMounts(List.of(new Mount().withType(MountType.VOLUME).withSource(volume).withTarget(POPULATE_DIR))))
+			.exec()
+			.getId();
+		try {
+			client.startContainerCmd(containerId).exec();
+			Integer exitCode = client.waitContainerCmd(containerId)
+				.exec(new WaitContainerResultCallback())
+				.awaitStatusCode(POPULATE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+			if (exitCode == null || exitCode != 0) {
+				throw new IllegalStateException(String.join(" ", command) + " exited with " + exitCode);
+			}
+		}
+		finally {
+			client.removeContainerCmd(containerId).withForce(true).exec();
+		}
+	}
+
+	/**
+	 * Read-only mounts of the caches for a sandbox
+	 */
+	public List<Mount> getMounts() {
+		return List.of(
+				new Mount().withType(MountType.VOLUME).withSource(PIP_VOLUME).withTarget(PIP_CACHE_DIR).withReadOnly(true),
+				new Mount().withType(MountType.VOLUME).withSource(NPM_VOLUME).withTarget(NPM_CACHE_DIR).withReadOnly(true));
+	}
+
+	/**
+	 * Environment pointing the package managers of a sandbox at the caches
+	 */
+	public List<String> getEnvironment() {
+		return List.of("PIP_FIND_LINKS=" + PIP_CACHE_DIR, "AGENT_RUNTIME_NPM_CACHE_SEED=" + NPM_CACHE_DIR,
+				"npm_config_prefer_offline=true");
+	}
+
+	/**
+	 * Population state per host
+	 */
+	public Map<String, Object> getStatus() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		for (DockerHost host : hosts) {
+			String error = errors.get(host.getName());
+			status.put(host.getName(),
+					populatedHosts.contains(host.getName()) ? "ready" : error != null ? "failed: " + error : "pending");
+		}
+		return status;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,648 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxEvent;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxState;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.client.SandboxHttpClient;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxWarmingException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.ResourceProfile;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.EventsCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Sandbox backend running each sandbox as a Docker container, spread over the
+ * configured Docker hosts
+ */
+public class DockerSandboxBackend implements SandboxBackend {
+
+	private static final Logger logger = LoggerFactory.getLogger(DockerSandboxBackend.class);
+
+	private static final String CONTAINER_SOCKET_DIR = "/var/run/sandbox";
+
+	private static final String SOCKET_FILE = "sandbox.sock";
+
+	private static final int BROWSER_API_PORT = 3000;
+
+	/** Label carrying the session ID, also used to filter daemon events */
+	private static final String SESSION_LABEL = "agent-runtime.sandbox.session";
+
+	private static final long EVENT_RESUBSCRIBE_DELAY_SECONDS = 1;
+
+	private final SandboxProperties config;
+
+	private final List<Consumer<SandboxEvent>> listeners = new CopyOnWriteArrayList<>();
+
+	/** Daemon event subscription per host name */
+	private final Map<String, Closeable> eventStreams = new ConcurrentHashMap<>();
+
+	/** When the event stream of a host ended, to replay the events missed since */
+	private final Map<String, Long> eventStreamEnds = new ConcurrentHashMap<>();
+
+	private volatile boolean closed;
+
+	private DockerHostScheduler scheduler;
+
+	private DockerImageManager imageManager;
+
+	private DockerPackageCache packageCache;
+
+	public DockerSandboxBackend(SandboxProperties config) {
+		this.config = config;
+	}
+
+	/**
+	 * Initialize a Docker client per configured host
+	 */
+	@Override
+	public void init() {
+		try {
+			scheduler = DockerHostScheduler.create(config);
+			scheduler.setReadmissionHook(this::setUpHost);
+
+			int healthy = 0;
+			for (DockerHost host : scheduler.getHosts()) {
+				if (!host.ping()) {
+					continue;
+				}
+				setUpHost(host);
+				healthy++;
+				logger.info("Docker client initialized successfully: {}", host.getName());
+			}
+			if (healthy == 0) {
+				throw new RuntimeException("No Docker host is reachable");
+			}
+
+			if (config.isImagePrePull()) {
+				List<String> images = config.getImagePrePullTypes()
+					.stream()
+					.map(type -> SandboxType.fromValue(type).getImageName())
+					.distinct()
+					.toList();
+				imageManager = new DockerImageManager(scheduler.getHosts(), images, config.getImageRefreshInterval());
+				imageManager.start();
+			}
+			if (config.isPackageCacheEnabled()) {
+				packageCache = new DockerPackageCache(scheduler.getHosts(), config.getPackageCachePipRequirements(),
+						config.getPackageCacheNpmPackages(), imageManager);
+				packageCache.start();
+			}
+
+		}
+		catch (Exception e) {
+			logger.error("Failed to initialize Docker client", e);
+			throw new RuntimeException("Docker client initialization failed", e);
+		}
+	}
+
+	/**
+	 * Prepare a host for sandboxes, at startup and whenever it is readmitted
+	 */
+	private void setUpHost(DockerHost host) {
+		if (config.isPrivateNetwork()) {
+			ensureNetwork(host.getClient(), config.getNetworkName());
+		}
+		Long since = eventStreamEnds.remove(host.getName());
+		watchEvents(host, since == null ? 0 : since);
+	}
+
+	/**
+	 * Create the user-defined sandbox network if it does not exist yet
+	 */
+	private void ensureNetwork(DockerClient dockerClient, String networkName) {
+		boolean exists = dockerClient.listNetworksCmd()
+			.withNameFilter(networkName)
+			.exec()
+			.stream()
+			.anyMatch(network -> networkName.equals(network.getName()));
+		if (!exists) {
+			dockerClient.createNetworkCmd().withName(networkName).withDriver("bridge").exec();
+			logger.info("Created sandbox network: {}", networkName);
+		}
+	}
+
+	/**
+	 * Report sandbox containers that exit on their own, replacing the host's previous
+	 * subscription
+	 * @param since epoch second to replay events from, 0 for new events only
+	 */
+	private void watchEvents(DockerHost host, long since) {
+		ResultCallback.Adapter<Event> callback = new ResultCallback.Adapter<>() {
+			@Override
+			public void onNext(Event event) {
+				listeners.forEach(listener -> listener.accept(new SandboxEvent(event.getId(), SandboxState.STOPPED)));
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				super.onError(throwable);
+				eventStreamEnded(host, this);
+			}
+
+			@Override
+			public void onComplete() {
+				super.onComplete();
+				eventStreamEnded(host, this);
+			}
+		};
+		EventsCmd command = host.getClient()
+			.eventsCmd()
+			.withEventTypeFilter(EventType.CONTAINER)
+			.withEventFilter("die")
+			.withLabelFilter(SESSION_LABEL);
+		if (since > 0) {
+			command.withSince(String.valueOf(since));
+		}
+		command.exec(callback);
+		closeQuietly(eventStreams.put(host.getName(), callback));
+	}
+
+	/**
+	 * Subscribe again once an event stream ends, e.g. on a daemon restart. When the
+	 * daemon does not answer, the host is taken out of placement and subscribes again
+	 * on readmission.
+	 */
+	private void eventStreamEnded(DockerHost host, Closeable stream) {
+		if (closed || !eventStreams.remove(host.getName(), stream)) {
+			return;
+		}
+		long since = System.currentTimeMillis() / 1000;
+		logger.warn("Docker event stream of {} ended, subscribing again", host.getName());
+		CompletableFuture.runAsync(() -> {
+			if (closed) {
+				return;
+			}
+			if (host.isHealthy() && host.ping()) {
+				watchEvents(host, since);
+			}
+			else {
+				eventStreamEnds.putIfAbsent(host.getName(), since);
+			}
+		}, CompletableFuture.delayedExecutor(EVENT_RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS));
+	}
+
+	private static void closeQuietly(Closeable stream) {
+		if (stream == null) {
+			return;
+		}
+		try {
+			stream.close();
+		}
+		catch (IOException e) {
+			logger.debug("Failed to close Docker event stream", e);
+		}
+	}
+
+	/**
+	 * Place and create a container, without starting it. Placement waits up to
+	 * {@code admission-timeout} for a host with room for the type's resource profile.
+	 * With image pre-pull, only hosts holding the image are eligible and the container is
+	 * created from the image's pinned digest.
+	 */
+	@Override
+	public ContainerModel create(String sessionId, SandboxType sandboxType) {
+		String imageName = sandboxType.getImageName();
+		Predicate<DockerHost> eligible = candidate -> true;
+		if (imageManager != null && imageManager.manages(imageName)) {
+			if (!imageManager.isReadyAnywhere(imageName)) {
+				throw new SandboxWarmingException(imageManager.describe(imageName));
+			}
+			eligible = candidate -> imageManager.isReady(candidate, imageName);
+		}
+		ResourceProfile profile = config.getResourceProfile(sandboxType.getValue());
+		DockerHost host = scheduler.select(profile, config.getAdmissionTimeout(), eligible);
+		DockerClient dockerClient = host.getClient();
+		List<Integer> ports = List.of();
+		Path socketDir = null;
+		try {
+			String pinned = imageManager != null ? imageManager.getReference(host, imageName) : null;
+			String image = pinned != null ? pinned : imageName;
+			String containerName = generateContainerName(sessionId);
+			boolean unixSocket = config.isUnixSocketTransport();
+			boolean privateNetwork = config.isPrivateNetwork();
+			if (unixSocket && !host.isLocal()) {
+				throw new RuntimeException("Unix socket transport requires a local Docker host, got " + host.getName());
+			}
+
+			// The control port is not published when the server listens on a socket
+			List<Integer> containerPorts = unixSocket
+					? sandboxType.getPorts().subList(1, sandboxType.getPorts().size()) : sandboxType.getPorts();
+
+			// On a private network containers are addressed by IP, no host ports needed
+			List<Integer> portRange = config.getPortRange();
+			ports = privateNetwork ? sandboxType.getPorts()
+					: host.allocatePorts(containerPorts.size(), portRange.get(0), portRange.get(1));
+
+			// Build port bindings and environment variables and mounts
+			PortBinding[] portBindings = privateNetwork ? new PortBinding[0] : buildPortBindings(ports, containerPorts);
+			List<String> environmentVariables = buildEnvironmentVariables(sessionId, sandboxType);
+			this.processSandboxSpecEnv(environmentVariables, portBindings, sandboxType, containerName, host);
+			List<Mount> mounts = buildMounts();
+
+			if (unixSocket) {
+				socketDir = prepareSocketDir(sessionId);
+				mounts.add(new Mount().withType(MountType.BIND)
+					.withSource(socketDir.toString())
+					.withTarget(CONTAINER_SOCKET_DIR)
+					.withReadOnly(false));
+				environmentVariables.add("SANDBOX_SOCKET=" + CONTAINER_SOCKET_DIR + "/" + SOCKET_FILE);
+			}
+
+			// Create container
+			CreateContainerResponse container = dockerClient.createContainerCmd(image)
+				.withName(containerName)
+				.withLabels(Map.of(SESSION_LABEL, sessionId))
+				.withEnv(environmentVariables)
+				.withHostConfig(applyResourceLimits(HostConfig.newHostConfig()
+				.withMounts(mounts)
+				.withPortBindings(portBindings)
+				// .withAutoRemove(config.isAutoCleanup())
+				.withNetworkMode(privateNetwork ? config.getNetworkName() : "bridge"), profile))
+				.exec();
+
+			String baseUrl = null;
+			if (unixSocket) {
+				baseUrl = "http://localhost";
+			}
+			else if (!privateNetwork) {
+				baseUrl = "http://" + host.getAddress() + ":" + ports.get(0);
+			}
+			ContainerModel model = new ContainerModel(sessionId, container.getId(), baseUrl, ports,
+					sandboxType.getValue());
+			model.setImageName(image);
+			model.setDockerHost(host.getName());
+			if (socketDir != null) {
+				model.setSocketPath(socketDir.resolve(SOCKET_FILE).toString());
+			}
+			return model;
+
+		}
+		catch (Exception e) {
+			logger.error("Failed to create container for session: {} on {}", sessionId, host.getName(), e);
+			scheduler.release(host, profile);
+			if (imageManager != null && e instanceof NotFoundException) {
+				imageManager.invalidate(host, imageName);
+			}
+			if (!config.isPrivateNetwork()) {
+				host.releasePorts(ports);
+			}
+			if (socketDir != null) {
+				deleteSocketDir(socketDir.resolve(SOCKET_FILE).toString());
+			}
+			// Take the host out of placement if its daemon went away
+			host.ping();
+			throw new RuntimeException("Container creation failed", e);
+		}
+	}
+
+	@Override
+	public void start(ContainerModel container) {
+		clientOf(container).startContainerCmd(container.getContainerId()).exec();
+	}
+
+	/**
+	 * Wait for the container to run, resolve its address on a private network and wait
+	 * for the sandbox server to pass its health check, i.e. to finish preloading modules
+	 */
+	@Override
+	public void awaitReady(ContainerModel container) {
+		DockerClient dockerClient = clientOf(container);
+		waitForContainerReady(dockerClient, container.getContainerId());
+		if (config.isPrivateNetwork() && !config.isUnixSocketTransport()) {
+			String ipAddress = resolveContainerIp(dockerClient, container.getContainerId());
+			container.setIpAddress(ipAddress);
+			container.setBaseUrl("http://" + ipAddress + ":" + container.getPorts().get(0));
+		}
+		waitForServerReady(container);
+	}
+
+	@Override
+	public void stop(ContainerModel container) {
+		try {
+			clientOf(container).stopContainerCmd(container.getContainerId()).withTimeout(10).exec();
+		}
+		catch (NotFoundException e) {
+			logger.debug("Container already gone: {}", container.getContainerId());
+		}
+	}
+
+	/**
+	 * Remove the container and release its ports and socket directory
+	 */
+	@Override
+	public void remove(ContainerModel container) {
+		DockerHost host = scheduler.getHost(container.getDockerHost());
+		try {
+			host.getClient().removeContainerCmd(container.getContainerId()).withForce(true).exec();
+		}
+		catch (NotFoundException e) {
+			logger.debug("Container already gone: {}", container.getContainerId());
+		}
+		finally {
+			// Release ports, only published ones are tracked
+			if (!config.isPrivateNetwork()) {
+				host.releasePorts(container.getPorts());
+			}
+			scheduler.release(host, config.getResourceProfile(container.getSandboxType()));
+			if (container.getSocketPath() != null) {
+				deleteSocketDir(container.getSocketPath());
+			}
+		}
+	}
+
+	@Override
+	public SandboxState inspect(ContainerModel container) {
+		try {
+			InspectContainerResponse.ContainerState state = clientOf(container)
+				.inspectContainerCmd(container.getContainerId())
+				.exec()
+				.getState();
+			if (Boolean.TRUE.equals(state.getRunning())) {
+				return SandboxState.RUNNING;
+			}
+			return "created".equals(state.getStatus()) ? SandboxState.CREATED : SandboxState.STOPPED;
+		}
+		catch (NotFoundException e) {
+			return SandboxState.MISSING;
+		}
+	}
+
+	@Override
+	public void addListener(Consumer<SandboxEvent> listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public Map<String, Object> getStatus() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		if (imageManager != null) {
+			status.put("images", imageManager.getStatus());
+		}
+		if (packageCache != null) {
+			status.put("packageCaches", packageCache.getStatus());
+		}
+		return status;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		eventStreams.values().forEach(DockerSandboxBackend::closeQuietly);
+		eventStreams.clear();
+		if (packageCache != null) {
+			packageCache.close();
+		}
+		if (imageManager != null) {
+			imageManager.close();
+		}
+		if (scheduler != null) {
+			scheduler.close();
+		}
+	}
+
+	private DockerClient clientOf(ContainerModel container) {
+		return scheduler.getHost(container.getDockerHost()).getClient();
+	}
+
+	/**
+	 * Process sandbox specific environment variables
+	 * @param environmentVariables environmentVariables
+	 * @param portBindings portBindings
+	 * @param sandboxType sandboxType
+	 * @param containerName containerName
+	 * @param host host the container is placed on
+	 */
+	private void processSandboxSpecEnv(List<String> environmentVariables, PortBinding[] portBindings,
+			SandboxType sandboxType, String containerName, DockerHost host) {
+		if (sandboxType == SandboxType.BROWSER) {
+			if (config.isPrivateNetwork()) {
+				// Resolvable by container name on the user-defined network
+				environmentVariables.add("DOMAIN=" + containerName + ":" + BROWSER_API_PORT);
+				return;
+			}
+			for (PortBinding portBinding : portBindings) {
+				if (portBinding.getExposedPort().getPort() == BROWSER_API_PORT) {
+					environmentVariables.add(
+							"DOMAIN=" + host.getAddress() + ":" + portBinding.getBinding().getHostPortSpec());
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Apply the CPU, memory and process limits of a resource profile
+	 */
+	private HostConfig applyResourceLimits(HostConfig hostConfig, ResourceProfile profile) {
+		if (profile.getNanoCpus() > 0) {
+			hostConfig.withNanoCPUs(profile.getNanoCpus());
+		}
+		if (profile.getCpuShares() > 0) {
+			hostConfig.withCpuShares(profile.getCpuShares());
+		}
+		if (profile.getMemoryBytes() > 0) {
+			// Same limit for memory and swap, so the sandbox cannot swap
+			hostConfig.withMemory(profile.getMemoryBytes()).withMemorySwap(profile.getMemoryBytes());
+		}
+		if (profile.getPidsLimit() > 0) {
+			hostConfig.withPidsLimit(profile.getPidsLimit());
+		}
+		return hostConfig;
+	}
+
+	/**
+	 * Look up the container IP on the sandbox network
+	 */
+	private String resolveContainerIp(DockerClient dockerClient, String containerId) {
+		InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
+		ContainerNetwork network = containerInfo.getNetworkSettings().getNetworks().get(config.getNetworkName());
+		if (network == null || network.getIpAddress() == null || network.getIpAddress().isEmpty()) {
+			throw new RuntimeException("Container " + containerId + " has no address on network " + config.getNetworkName());
+		}
+		return network.getIpAddress();
+	}
+
+	/**
+	 * Create the per-session host directory holding the sandbox server socket
+	 */
+	private Path prepareSocketDir(String sessionId) throws IOException {
+		Path socketDir = Paths.get(config.getSocketDir(), sessionId).toAbsolutePath();
+		Files.createDirectories(socketDir);
+		// The sandbox server may run as a non-root user inside the container
+		Files.setPosixFilePermissions(socketDir, PosixFilePermissions.fromString("rwxrwxrwx"));
+		return socketDir;
+	}
+
+	/**
+	 * Remove the per-session socket directory
+	 */
+	private void deleteSocketDir(String socketPath) {
+		try {
+			Path socketDir = Paths.get(socketPath).getParent();
+			Files.deleteIfExists(Paths.get(socketPath));
+			Files.deleteIfExists(socketDir);
+		}
+		catch (IOException e) {
+			logger.warn("Failed to delete socket directory for: {}", socketPath, e);
+		}
+	}
+
+	/**
+	 * Generate container name
+	 */
+	private String generateContainerName(String sessionId) {
+		return config.getContainerPrefixKey() + sessionId;
+	}
+
+	/**
+	 * Build port bindings
+	 */
+	private PortBinding[] buildPortBindings(List<Integer> ports, List<Integer> occupiedPorts) {
+		List<PortBinding> bindings = new ArrayList<>();
+		for(int i = 0 ; i < ports.size() ; i++) {
+			bindings.add(new PortBinding(Ports.Binding.bindPort(ports.get(i)), ExposedPort.tcp(occupiedPorts.get(i))));
+		}
+		return bindings.toArray(new PortBinding[0]);
+	}
+
+	private List<Mount> buildMounts() {
+		List<Mount> mounts = new ArrayList<>();
+		if (config.getDefaultMountDir() != null && !config.getDefaultMountDir().isEmpty()) {
+			String hostDir = config.getDefaultMountDir();
+			String containerDir = "/workspace";
+			Mount mount = new Mount().withType(MountType.BIND)
+				.withSource(hostDir)
+				.withTarget(containerDir)
+				.withReadOnly(false);
+			mounts.add(mount);
+		}
+		if (packageCache != null) {
+			mounts.addAll(packageCache.getMounts());
+		}
+		return mounts;
+	}
+
+	/**
+	 * Build environment variables
+	 */
+	private List<String> buildEnvironmentVariables(String sessionId, SandboxType sandboxType) {
+		List<String> env = new ArrayList<>();
+		env.add("SESSION_ID=" + sessionId);
+		List<String> preloadModules = config.getPreloadModules(sandboxType.getValue());
+		if (!preloadModules.isEmpty()) {
+			env.add("SANDBOX_PRELOAD_MODULES=" + String.join(",", preloadModules));
+		}
+		env.add("SECRET_TOKEN=" + config.getBearerToken());
+		env.add("WORKSPACE_DIR=/workspace");
+		if (packageCache != null) {
+			env.addAll(packageCache.getEnvironment());
+		}
+		// Add sandbox type specific envs
+		if (config.getDockerEnvironment() != null) {
+			config.getDockerEnvironment().forEach((key, value) -> env.add(key + "=" + value));
+		}
+		return env;
+	}
+
+	/**
+	 * Wait for container to be ready
+	 */
+	private void waitForContainerReady(DockerClient dockerClient, String containerId) {
+		int maxAttempts = 30;
+		int attempt = 0;
+
+		while (attempt < maxAttempts) {
+			try {
+				// Check if container is running
+				InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
+
+				if (Boolean.TRUE.equals(containerInfo.getState().getRunning())) {
+					return;
+				}
+
+				Thread.sleep(1000);
+				attempt++;
+
+			}
+			catch (Exception e) {
+				logger.debug("Waiting for container to be ready, attempt: {}", attempt + 1);
+				try {
+					Thread.sleep(1000);
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for container", ie);
+				}
+				attempt++;
+			}
+		}
+
+		throw new RuntimeException("Container failed to become ready within timeout");
+	}
+
+	/**
+	 * Poll the sandbox server's health check until it answers
+	 */
+	private void waitForServerReady(ContainerModel container) {
+		long deadline = System.currentTimeMillis() + config.getServerReadyTimeout().toMillis();
+		try (SandboxHttpClient client = new SandboxHttpClient(container)) {
+			while (System.currentTimeMillis() < deadline) {
+				if (client.healthCheck()) {
+					return;
+				}
+				Thread.sleep(100);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for sandbox server", e);
+		}
+		catch (IOException e) {
+			logger.debug("Failed to close health check client", e);
+		}
+		throw new RuntimeException("Sandbox server failed to become ready within timeout: " + container.getContainerId());
+	}
+
+}
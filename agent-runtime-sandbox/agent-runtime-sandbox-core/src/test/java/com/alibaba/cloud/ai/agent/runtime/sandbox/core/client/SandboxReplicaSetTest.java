@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxToolException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejection against stub clients, no sandbox needed
+ */
+@DisplayName("Sandbox Replica Set Test")
+public class SandboxReplicaSetTest {
+
+	@Test
+	@DisplayName("Ejects a replica after consecutive transport and server failures")
+	public void testEjectOnSandboxFailures() {
+		StubClient client = new StubClient();
+		SandboxReplicaSet replicaSet = new SandboxReplicaSet(List.of(session(client)), 3, Duration.ofMinutes(1));
+
+		replicaSet.call("read_file", Map.of());
+		client.failure = new SandboxClientException("Request failed with status 503: unavailable", 503);
+		for (int i = 0; i < 3; i++) {
+			assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		}
+		assertEquals(0, replicaSet.getHealthyCount());
+	}
+
+	@Test
+	@DisplayName("Keeps a replica whose tools report errors or whose requests are rejected")
+	public void testToolErrorsDoNotEject() {
+		StubClient client = new StubClient();
+		SandboxReplicaSet replicaSet = new SandboxReplicaSet(List.of(session(client)), 3, Duration.ofMinutes(1));
+
+		client.failure = new SandboxToolException("Tool call failed: read_file: file not found");
+		for (int i = 0; i < 5; i++) {
+			assertThrows(SandboxToolException.class, () -> replicaSet.call("read_file", Map.of()));
+		}
+		client.failure = new SandboxClientException("Request failed with status 422: invalid arguments", 422);
+		for (int i = 0; i < 5; i++) {
+			assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		}
+		assertEquals(1, replicaSet.getHealthyCount());
+
+		// A tool error in between resets the run of failures
+		client.failure = new SandboxClientException("Failed to execute request to /tools/call");
+		assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		client.failure = new SandboxToolException("Tool call failed: read_file: file not found");
+		assertThrows(SandboxToolException.class, () -> replicaSet.call("read_file", Map.of()));
+		client.failure = new SandboxClientException("Failed to execute request to /tools/call");
+		assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		assertEquals(1, replicaSet.getHealthyCount());
+	}
+
+	@Test
+	@DisplayName("Readmits an ejected replica once a trial call after the cooldown succeeds")
+	public void testTrialCallReadmits() {
+		StubClient client = new StubClient();
+		SandboxReplicaSet replicaSet = new SandboxReplicaSet(List.of(session(client)), 1, Duration.ZERO);
+
+		client.failure = new SandboxClientException("Failed to execute request to /tools/call");
+		assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		assertEquals(0, replicaSet.getHealthyCount());
+
+		// A failed trial ejects it again
+		assertThrows(SandboxClientException.class, () -> replicaSet.call("read_file", Map.of()));
+		assertEquals(0, replicaSet.getHealthyCount());
+
+		client.failure = null;
+		replicaSet.call("read_file", Map.of());
+		assertEquals(1, replicaSet.getHealthyCount());
+	}
+
+	@Test
+	@DisplayName("Sends one trial call at a time and keeps other calls on the healthy replicas")
+	public void testSingleTrialCall() throws Exception {
+		StubClient ejected = new StubClient();
+		StubClient healthy = new StubClient();
+		SandboxReplicaSet replicaSet = new SandboxReplicaSet(List.of(session(ejected), session(healthy)), 1,
+				Duration.ZERO);
+
+		ejected.failure = new SandboxClientException("Failed to execute request to /tools/call");
+		while (replicaSet.getHealthyCount() == 2) {
+			try {
+				replicaSet.call("read_file", Map.of());
+			}
+			catch (SandboxClientException e) {
+				// Landed on the failing replica
+			}
+		}
+
+		ejected.failure = null;
+		ejected.gate = new CountDownLatch(1);
+		int ejectedCalls = ejected.calls.get();
+		int healthyCalls = healthy.calls.get();
+		CompletableFuture<Object> trial = CompletableFuture.supplyAsync(() -> replicaSet.call("read_file", Map.of()));
+		assertTrue(ejected.entered.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 5; i++) {
+			replicaSet.call("read_file", Map.of());
+		}
+		assertEquals(healthyCalls + 5, healthy.calls.get());
+		assertEquals(ejectedCalls + 1, ejected.calls.get());
+
+		ejected.gate.countDown();
+		trial.get(5, TimeUnit.SECONDS);
+		assertEquals(2, replicaSet.getHealthyCount());
+	}
+
+	private static SandboxSession session(StubClient client) {
+		ContainerModel container = new ContainerModel();
+		container.setSessionId("replica");
+		return new SandboxSession(container, client, null);
+	}
+
+	/**
+	 * Fails every call with the configured exception once it is set, and holds calls while a
+	 * gate is set
+	 */
+	private static class StubClient extends SandboxHttpClient {
+
+		private volatile RuntimeException failure;
+
+		private volatile CountDownLatch gate;
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		StubClient() {
+			super("http://localhost:1", null);
+		}
+
+		@Override
+		public Object call(String name, Map<String, Object> args) {
+			calls.incrementAndGet();
+			CountDownLatch gate = this.gate;
+			if (gate != null) {
+				entered.countDown();
+				try {
+					gate.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return List.of();
+		}
+
+	}
+
+}
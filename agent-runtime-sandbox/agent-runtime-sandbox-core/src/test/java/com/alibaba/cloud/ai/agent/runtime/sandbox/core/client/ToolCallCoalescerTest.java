@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.client;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxClientException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCall;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolCallResult;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ToolResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batching against a stub client, no sandbox needed
+ */
+@DisplayName("Tool Call Coalescer Test")
+public class ToolCallCoalescerTest {
+
+	@Test
+	@DisplayName("Sends the calls of one window as a single batch")
+	public void testFlushOnWindow() throws Exception {
+		StubClient client = new StubClient();
+		try (ToolCallCoalescer coalescer = new ToolCallCoalescer(client, Duration.ofMillis(50), 32)) {
+			CompletableFuture<Object> first = coalescer.submit("read_file", Map.of("path", "a"));
+			CompletableFuture<Object> second = coalescer.submit("read_file", Map.of("path", "b"));
+			assertFalse(first.isDone());
+
+			assertEquals("read_file:a", textOf(first.get(5, TimeUnit.SECONDS)));
+			assertEquals("read_file:b", textOf(second.get(5, TimeUnit.SECONDS)));
+		}
+		assertEquals(List.of(2), client.batchSizes);
+		assertEquals(0, client.singleCalls.size());
+	}
+
+	@Test
+	@DisplayName("Sends a full batch without waiting for the window")
+	public void testFlushOnMaxBatchSize() throws Exception {
+		StubClient client = new StubClient();
+		try (ToolCallCoalescer coalescer = new ToolCallCoalescer(client, Duration.ofMinutes(1), 2)) {
+			CompletableFuture<Object> first = coalescer.submit("read_file", Map.of("path", "a"));
+			CompletableFuture<Object> second = coalescer.submit("read_file", Map.of("path", "b"));
+
+			first.get(5, TimeUnit.SECONDS);
+			second.get(5, TimeUnit.SECONDS);
+			assertEquals(List.of(2), client.batchSizes);
+		}
+	}
+
+	@Test
+	@DisplayName("Fails only the calls whose batch entry is an error")
+	public void testErrorFanOut() throws Exception {
+		StubClient client = new StubClient();
+		try (ToolCallCoalescer coalescer = new ToolCallCoalescer(client, Duration.ofMinutes(1), 2)) {
+			CompletableFuture<Object> ok = coalescer.submit("read_file", Map.of("path", "a"));
+			CompletableFuture<Object> failed = coalescer.submit("fail", Map.of());
+
+			assertEquals("read_file:a", textOf(ok.get(5, TimeUnit.SECONDS)));
+			ExecutionException error = assertThrows(ExecutionException.class,
+					() -> failed.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(SandboxClientException.class, error.getCause());
+		}
+
+		client.batchFailure = new SandboxClientException("connection refused");
+		try (ToolCallCoalescer coalescer = new ToolCallCoalescer(client, Duration.ofMinutes(1), 2)) {
+			CompletableFuture<Object> first = coalescer.submit("read_file", Map.of("path", "a"));
+			CompletableFuture<Object> second = coalescer.submit("read_file", Map.of("path", "b"));
+
+			assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+			assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	@DisplayName("Sends the pending window on close and rejects later calls")
+	public void testCloseDrains() throws Exception {
+		StubClient client = new StubClient();
+		ToolCallCoalescer coalescer = new ToolCallCoalescer(client, Duration.ofMinutes(1), 32);
+		CompletableFuture<Object> pending = coalescer.submit("read_file", Map.of("path", "a"));
+
+		coalescer.close();
+		assertTrue(pending.isDone());
+		assertEquals("read_file:a", textOf(pending.get()));
+		assertEquals(List.of("read_file"), client.singleCalls);
+
+		CompletableFuture<Object> rejected = coalescer.submit("read_file", Map.of("path", "b"));
+		assertTrue(rejected.isCompletedExceptionally());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String textOf(Object result) {
+		return ((List<ToolResult.Content>) result).get(0).getText();
+	}
+
+	private static ToolResult.Content text(String text) {
+		ToolResult.Content content = new ToolResult.Content();
+		content.setType("text");
+		content.setText(text);
+		return content;
+	}
+
+	/**
+	 * Answers each call with its name and path, and fails calls named "fail"
+	 */
+	private static class StubClient extends SandboxHttpClient {
+
+		private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+		private final List<String> singleCalls = new CopyOnWriteArrayList<>();
+
+		private volatile RuntimeException batchFailure;
+
+		StubClient() {
+			super("http://localhost:1", null);
+		}
+
+		@Override
+		public Object call(String name, Map<String, Object> args) {
+			singleCalls.add(name);
+			return List.of(text(name + ":" + args.get("path")));
+		}
+
+		@Override
+		public List<ToolCallResult> callBatch(List<ToolCall> calls) {
+			batchSizes.add(calls.size());
+			if (batchFailure != null) {
+				throw batchFailure;
+			}
+			List<ToolCallResult> results = new ArrayList<>();
+			for (ToolCall call : calls) {
+				results.add("fail".equals(call.getName()) ? new ToolCallResult(null, "boom")
+						: new ToolCallResult(List.of(text(call.getName() + ":" + call.getArgs().get("path"))), null));
+			}
+			return results;
+		}
+
+	}
+
+}
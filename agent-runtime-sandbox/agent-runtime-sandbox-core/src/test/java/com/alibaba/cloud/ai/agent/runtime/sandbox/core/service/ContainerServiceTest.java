@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxBackend;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxEvent;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.backend.SandboxState;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.SandboxProperties;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dense mode bookkeeping over a stub backend whose containers all point at an
+ * in-process server answering the kernel endpoints
+ */
+@DisplayName("Container Service Test")
+public class ContainerServiceTest {
+
+	private HttpServer server;
+
+	private final List<String> kernelRequests = new CopyOnWriteArrayList<>();
+
+	private StubBackend backend;
+
+	private ContainerService service;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/kernels/", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			kernelRequests.add(exchange.getRequestURI().getPath());
+			byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		backend = new StubBackend("http://127.0.0.1:" + server.getAddress().getPort());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (service != null) {
+			service.cleanup();
+		}
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("Packs sessions into the fullest shared container with room")
+	public void testBestFitPacking() {
+		start(3);
+		String first = create("s1");
+		assertEquals(first, create("s2"));
+		assertEquals(first, create("s3"));
+		String second = create("s4");
+		assertNotEquals(first, second);
+
+		service.removeContainer("s1");
+		// first has 2 sessions, second 1
+		assertEquals(first, create("s5"));
+		assertEquals(2, backend.created.get());
+	}
+
+	@Test
+	@DisplayName("Gives the slot of a removed session to the next one")
+	public void testSlotRelease() {
+		start(2);
+		String container = create("s1");
+		create("s2");
+
+		service.removeContainer("s2");
+		assertEquals(List.of("/kernels/start", "/kernels/start", "/kernels/shutdown"), kernelRequests);
+		assertEquals(container, create("s3"));
+		assertEquals(1, backend.created.get());
+		assertTrue(backend.removed.isEmpty());
+	}
+
+	@Test
+	@DisplayName("Removes a shared container with its last session")
+	public void testRemoveWithLastSession() {
+		start(2);
+		String container = create("s1");
+		create("s2");
+
+		service.removeContainer("s1");
+		assertTrue(backend.removed.isEmpty());
+		service.removeContainer("s2");
+		assertEquals(List.of(container), backend.removed);
+
+		assertNotEquals(container, create("s3"));
+		assertEquals(2, backend.created.get());
+	}
+
+	@Test
+	@DisplayName("Waits for a shared container that is still starting instead of starting another")
+	public void testWaitForPendingContainer() throws Exception {
+		start(2);
+		backend.readyGate = new CountDownLatch(1);
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> create("s1"));
+		assertTrue(backend.awaitingReady.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> create("s2"));
+		Thread.sleep(200);
+		assertFalse(second.isDone());
+		assertEquals(1, backend.created.get());
+
+		backend.readyGate.countDown();
+		assertEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, backend.created.get());
+	}
+
+	@Test
+	@DisplayName("Rejects kernel density for sandbox types without kernels")
+	public void testRejectsDensityForNonBaseType() {
+		SandboxProperties properties = new SandboxProperties();
+		properties.setKernelDensity(Map.of("browser", 4));
+		ContainerService rejected = new ContainerService(properties, backend);
+
+		assertThrows(IllegalArgumentException.class, rejected::init);
+	}
+
+	private void start(int density) {
+		SandboxProperties properties = new SandboxProperties();
+		properties.setKernelDensity(Map.of(SandboxType.BASE.getValue(), density));
+		service = new ContainerService(properties, backend);
+		service.init();
+	}
+
+	private String create(String sessionId) {
+		return service.createContainer(sessionId, SandboxType.BASE).getContainerId();
+	}
+
+	private static class StubBackend implements SandboxBackend {
+
+		private final String baseUrl;
+
+		private final AtomicInteger created = new AtomicInteger();
+
+		private final List<String> removed = new CopyOnWriteArrayList<>();
+
+		private final CountDownLatch awaitingReady = new CountDownLatch(1);
+
+		private volatile CountDownLatch readyGate;
+
+		StubBackend(String baseUrl) {
+			this.baseUrl = baseUrl;
+		}
+
+		@Override
+		public void init() {
+		}
+
+		@Override
+		public ContainerModel create(String sessionId, SandboxType sandboxType) {
+			ContainerModel container = new ContainerModel();
+			container.setSessionId(sessionId);
+			container.setContainerId("container-" + created.incrementAndGet());
+			container.setBaseUrl(baseUrl);
+			container.setSandboxType(sandboxType.getValue());
+			return container;
+		}
+
+		@Override
+		public void start(ContainerModel container) {
+		}
+
+		@Override
+		public void awaitReady(ContainerModel container) {
+			awaitingReady.countDown();
+			CountDownLatch gate = readyGate;
+			if (gate != null) {
+				try {
+					gate.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		public void stop(ContainerModel container) {
+		}
+
+		@Override
+		public void remove(ContainerModel container) {
+			removed.add(container.getContainerId());
+		}
+
+		@Override
+		public SandboxState inspect(ContainerModel container) {
+			return SandboxState.RUNNING;
+		}
+
+		@Override
+		public void addListener(Consumer<SandboxEvent> listener) {
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.core.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxAdmissionException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.properties.ResourceProfile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Placement over stub Docker endpoints, no daemon needed
+ */
+@DisplayName("Docker Host Scheduler Test")
+public class DockerHostSchedulerTest {
+
+	private static final long GIB = 1024L * 1024 * 1024;
+
+	@Test
+	@DisplayName("Spreads sandboxes over the hosts with the fewest containers")
+	public void testLeastContainers() {
+		DockerHost first = new DockerHost("tcp://10.0.0.1:2375", null);
+		DockerHost second = new DockerHost("tcp://10.0.0.2:2375", null);
+		first.containerAdded();
+		DockerHostScheduler scheduler = new DockerHostScheduler(List.of(first, second),
+				DockerHostScheduler.LEAST_CONTAINERS, GIB);
+
+		assertSame(second, scheduler.select());
+		scheduler.select();
+		scheduler.select();
+		assertEquals(2, first.getActiveContainers());
+		assertEquals(2, second.getActiveContainers());
+	}
+
+	@Test
+	@DisplayName("Places sandboxes on the host with the most free memory")
+	public void testMostMemory() {
+		DockerHost small = new DockerHost("tcp://10.0.0.1:2375", null);
+		DockerHost large = new DockerHost("tcp://10.0.0.2:2375", null);
+		small.setMemoryTotal(4 * GIB);
+		large.setMemoryTotal(16 * GIB);
+		DockerHostScheduler scheduler = new DockerHostScheduler(List.of(small, large), DockerHostScheduler.MOST_MEMORY,
+				GIB);
+
+		for (int i = 0; i < 12; i++) {
+			assertSame(large, scheduler.select());
+		}
+		// Both hosts now have 4 GiB left
+		assertSame(small, scheduler.select());
+		assertSame(large, scheduler.select());
+	}
+
+	@Test
+	@DisplayName("Skips unhealthy hosts")
+	public void testUnhealthyHost() {
+		DockerHost down = new DockerHost("tcp://10.0.0.1:2375", null);
+		DockerHost up = new DockerHost("tcp://10.0.0.2:2375", null);
+		up.containerAdded();
+		down.markUnhealthy();
+		DockerHostScheduler scheduler = new DockerHostScheduler(List.of(down, up),
+				DockerHostScheduler.LEAST_CONTAINERS, GIB);
+
+		assertSame(up, scheduler.select());
+
+		up.markUnhealthy();
+		assertThrows(RuntimeException.class, scheduler::select);
+	}
+
+	@Test
+	@DisplayName("Queues creates until reserved capacity is released and rejects oversized ones")
+	public void testAdmission() throws Exception {
+		DockerHost host = new DockerHost("tcp://10.0.0.1:2375", null);
+		host.setMemoryTotal(4 * GIB);
+		host.setNanoCpusTotal(4_000_000_000L);
+		DockerHostScheduler scheduler = new DockerHostScheduler(List.of(host), DockerHostScheduler.LEAST_CONTAINERS,
+				GIB);
+		ResourceProfile profile = new ResourceProfile();
+		profile.setCpus(2);
+		profile.setMemory(DataSize.ofGigabytes(1));
+
+		scheduler.select(profile, Duration.ZERO);
+		scheduler.select(profile, Duration.ZERO);
+		assertEquals(4_000_000_000L, host.getReservedNanoCpus());
+		assertThrows(SandboxAdmissionException.class, () -> scheduler.select(profile, Duration.ZERO));
+
+		CompletableFuture<DockerHost> queued = CompletableFuture
+			.supplyAsync(() -> scheduler.select(profile, Duration.ofSeconds(10)));
+		Thread.sleep(100);
+		assertTrue(!queued.isDone());
+		scheduler.release(host, profile);
+		assertSame(host, queued.get());
+		assertEquals(2 * GIB, host.getReservedMemory());
+
+		ResourceProfile oversized = new ResourceProfile();
+		oversized.setMemory(DataSize.ofGigabytes(8));
+		assertThrows(SandboxAdmissionException.class, () -> scheduler.select(oversized, Duration.ofSeconds(10)));
+	}
+
+	@Test
+	@DisplayName("Reaches published ports at the endpoint address")
+	public void testAddress() {
+		assertEquals("10.0.0.1", new DockerHost("tcp://10.0.0.1:2375", null).getAddress());
+		DockerHost local = new DockerHost("unix:///var/run/docker.sock", null);
+		assertEquals("localhost", local.getAddress());
+		assertTrue(local.isLocal());
+	}
+
+}
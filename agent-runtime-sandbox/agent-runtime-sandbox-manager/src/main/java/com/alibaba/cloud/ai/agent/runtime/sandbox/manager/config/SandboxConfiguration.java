@@ -43,8 +43,9 @@ public class SandboxConfiguration {
 	}
 
 	@Bean
-	public SandboxClientFactory sandboxClientFactory(ContainerService containerService) {
-		return new SandboxClientFactory(containerService);
+	public SandboxClientFactory sandboxClientFactory(ContainerService containerService,
+			SandboxProperties properties) {
+		return new SandboxClientFactory(containerService, properties);
 	}
 
 	@Bean
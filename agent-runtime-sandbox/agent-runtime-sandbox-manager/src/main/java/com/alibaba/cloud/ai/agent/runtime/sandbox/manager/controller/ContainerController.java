@@ -20,9 +20,13 @@
 package com.alibaba.cloud.ai.agent.runtime.sandbox.manager.controller;
 
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.enums.SandboxType;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxAdmissionException;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.exceptions.SandboxWarmingException;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.model.ContainerModel;
 import com.alibaba.cloud.ai.agent.runtime.sandbox.core.service.ContainerService;
 import jakarta.annotation.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -40,10 +44,11 @@ public class ContainerController {
 	private ContainerService containerService;
 
 	/**
-	 * Create a new container
+	 * Create a new container, answering 503 when the hosts have no capacity left or the
+	 * sandbox image is still being pulled
 	 */
 	@PostMapping
-	public ResponseEntity<ContainerModel> createContainer(
+	public ResponseEntity<?> createContainer(
 			@RequestParam(defaultValue = "BASE", value = "sandboxType") String sandboxType,
 			@RequestParam(required = false, value = "sessionId") String sessionId) {
 
@@ -52,7 +57,16 @@ public class ContainerController {
 		}
 
 		SandboxType type = SandboxType.fromValue(sandboxType);
-		ContainerModel container = containerService.createContainer(sessionId, type);
+		ContainerModel container;
+		try {
+			container = containerService.createContainer(sessionId, type);
+		}
+		catch (SandboxAdmissionException e) {
+			String status = e instanceof SandboxWarmingException ? "warming" : "at-capacity";
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "5")
+				.body(Map.of("status", status, "message", e.getMessage()));
+		}
 
 		return ResponseEntity.ok(container);
 	}
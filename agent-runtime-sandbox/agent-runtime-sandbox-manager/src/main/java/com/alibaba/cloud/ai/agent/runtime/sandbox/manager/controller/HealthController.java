@@ -19,10 +19,13 @@
 
 package com.alibaba.cloud.ai.agent.runtime.sandbox.manager.controller;
 
+import com.alibaba.cloud.ai.agent.runtime.sandbox.core.service.ContainerService;
+import jakarta.annotation.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -31,12 +34,18 @@ import java.util.Map;
 @RestController
 public class HealthController {
 
+	@Resource
+	private ContainerService containerService;
+
 	/**
-	 * Detailed health status
+	 * Detailed health status, including backend state such as sandbox image pulls
 	 */
 	@GetMapping("/health")
 	public ResponseEntity<Map<String, Object>> health() {
-		return ResponseEntity.ok(Map.of("status", "healthy", "version", "1.0.0", "service", "sandbox-server"));
+		Map<String, Object> health = new LinkedHashMap<>(
+				Map.of("status", "healthy", "version", "1.0.0", "service", "sandbox-server"));
+		health.putAll(containerService.getBackendStatus());
+		return ResponseEntity.ok(health);
 	}
 
 }
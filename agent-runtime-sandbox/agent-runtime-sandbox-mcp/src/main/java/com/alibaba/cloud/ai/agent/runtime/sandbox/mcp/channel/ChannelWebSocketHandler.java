@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.channel;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.controller.ToolsController;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent channel multiplexing tool requests by correlation ID.
+ *
+ * <p>
+ * Each request frame is dispatched to the same handlers as the REST endpoints and
+ * answered with a response frame carrying the original ID, so many calls can be in
+ * flight on one connection.
+ */
+@Component
+public class ChannelWebSocketHandler extends TextWebSocketHandler {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChannelWebSocketHandler.class);
+
+	private static final int SEND_TIME_LIMIT = 10_000;
+
+	private static final int SEND_BUFFER_LIMIT = 16 * 1024 * 1024;
+
+	private final ToolsController toolsController;
+
+	private final ObjectMapper objectMapper;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+	public ChannelWebSocketHandler(ToolsController toolsController, ObjectMapper objectMapper) {
+		this.toolsController = toolsController;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void afterConnectionEstablished(WebSocketSession session) {
+		sessions.put(session.getId(),
+				new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT, SEND_BUFFER_LIMIT));
+	}
+
+	@Override
+	public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+		sessions.remove(session.getId());
+	}
+
+	@Override
+	protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+		JsonNode frame = objectMapper.readTree(message.getPayload());
+		WebSocketSession target = sessions.getOrDefault(session.getId(), session);
+		executor.execute(() -> handleFrame(target, frame));
+	}
+
+	private void handleFrame(WebSocketSession session, JsonNode frame) {
+		String id = frame.path("id").asText();
+		String endpoint = frame.path("endpoint").asText();
+
+		CompletableFuture<? extends ResponseEntity<?>> result;
+		try {
+			if ("stream".equals(frame.path("type").asText())) {
+				throw new IllegalArgumentException("Streaming not supported for: " + endpoint);
+			}
+			result = dispatch(endpoint, frame.path("payload"));
+		}
+		catch (Exception e) {
+			result = CompletableFuture.failedFuture(e);
+		}
+
+		// Tool calls complete asynchronously, answer whenever they are done
+		result.whenComplete((entity, ex) -> sendResponse(session, id, endpoint, entity, ex));
+	}
+
+	private void sendResponse(WebSocketSession session, String id, String endpoint, ResponseEntity<?> entity,
+			Throwable ex) {
+		ObjectNode response = objectMapper.createObjectNode();
+		response.put("id", id);
+		response.put("type", "response");
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		if (cause == null) {
+			response.put("status", entity.getStatusCode().value());
+			response.set("body", toBody(entity.getBody()));
+		}
+		else if (cause instanceof IllegalArgumentException) {
+			response.put("status", 400);
+			response.put("body", cause.getMessage());
+		}
+		else {
+			logger.error("Channel request failed: {}", endpoint, cause);
+			response.put("status", 500);
+			response.put("body", String.valueOf(cause.getMessage()));
+		}
+
+		try {
+			session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+		}
+		catch (Exception e) {
+			logger.warn("Failed to send channel response: {}", id, e);
+		}
+	}
+
+	private CompletableFuture<? extends ResponseEntity<?>> dispatch(String endpoint, JsonNode payload) {
+		return switch (endpoint) {
+			case "/tools/call" -> toolsController.call(objectMapper.convertValue(payload, new TypeReference<>() {
+			}));
+			case "/tools/call_batch" -> toolsController.callBatch(objectMapper.convertValue(payload, new TypeReference<>() {
+			}));
+			case "/tools/list" -> CompletableFuture.completedFuture(toolsController.list(null));
+			default -> throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+		};
+	}
+
+	/**
+	 * String bodies are raw JSON on the REST path, so keep them as JSON on the channel
+	 */
+	private JsonNode toBody(Object body) {
+		if (body instanceof String text) {
+			try {
+				return objectMapper.readTree(text);
+			}
+			catch (Exception e) {
+				return objectMapper.getNodeFactory().textNode(text);
+			}
+		}
+		return objectMapper.valueToTree(body);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Serve on the Unix domain socket given by {@code SANDBOX_SOCKET} instead of a TCP port,
+ * so the manager can reach the sandbox without publishing its control port
+ */
+@Configuration
+@ConditionalOnProperty(name = "SANDBOX_SOCKET")
+public class UnixSocketServerConfig {
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> unixSocketCustomizer(Environment environment) {
+		String socketPath = environment.getRequiredProperty("SANDBOX_SOCKET");
+		return factory -> factory.addConnectorCustomizers(connector -> {
+			connector.setProperty("unixDomainSocketPath", socketPath);
+			// The manager connects from the host as a different user
+			connector.setProperty("unixDomainSocketPathPermissions", "rw-rw-rw-");
+		});
+	}
+
+}
@@ -19,15 +19,32 @@
 
 package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.controller;
 
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service.McpClientPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 @RestController
 public class HealthzController {
 
+	@Autowired
+	private McpClientPool clientPool;
+
+	/**
+	 * Report OK once every MCP server is warmed up, the readiness of each server until
+	 * then
+	 */
 	@GetMapping("/healthz")
-	public String index() {
-		return "\"OK\"";
+	public ResponseEntity<Object> index() {
+		Map<String, Boolean> readiness = clientPool.getReadiness();
+		if (readiness.containsValue(false)) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(readiness);
+		}
+		return ResponseEntity.ok("\"OK\"");
 	}
 
 }
@@ -19,7 +19,8 @@
 
 package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.controller;
 
-import io.modelcontextprotocol.client.McpSyncClient;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service.McpClientPool;
+import io.modelcontextprotocol.client.McpAsyncClient;
 import io.modelcontextprotocol.spec.McpSchema;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -27,7 +28,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -36,7 +36,7 @@ import java.util.stream.Collectors;
 public class IndexController {
 
 	@Autowired
-	private List<McpSyncClient> mcpSyncClients;
+	private McpClientPool clientPool;
 
 	@GetMapping
 	public ResponseEntity<String> index() {
@@ -45,8 +45,8 @@ public class IndexController {
 
 	@GetMapping("/clients")
 	public ResponseEntity<Set<String>> clients() {
-		Set<String> clients = mcpSyncClients.stream()
-			.map(McpSyncClient::getClientInfo)
+		Set<String> clients = clientPool.getClients().stream()
+			.map(McpAsyncClient::getClientInfo)
 			.map(McpSchema.Implementation::name)
 			.collect(Collectors.toSet());
 		return ResponseEntity.ok(clients);
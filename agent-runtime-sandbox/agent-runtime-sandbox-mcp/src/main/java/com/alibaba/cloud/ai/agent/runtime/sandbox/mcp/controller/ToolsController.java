@@ -19,54 +19,158 @@
 
 package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.controller;
 
-import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.utils.ToolCallbackUtils;
-import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
-import org.springframework.ai.tool.ToolCallback;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.model.BatchResult;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service.ToolEntry;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service.ToolExecutor;
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service.ToolRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.tool.definition.ToolDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/tools")
 public class ToolsController {
 
 	@Autowired
-	private SyncMcpToolCallbackProvider toolCallbackProvider;
+	private ToolRegistry toolRegistry;
 
+	@Autowired
+	private ToolExecutor toolExecutor;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private SandboxMcpProperties properties;
+
+	/**
+	 * Call a tool. Arguments sent as a JSON object get the typed MCP result back, with
+	 * tool errors reported through {@code isError}. Arguments sent as a JSON encoded
+	 * string get the legacy response: the content list, or a server error.
+	 */
 	@PostMapping("/call")
-	public ResponseEntity<Object> call(@RequestBody Map<String, String> request) {
-		String name = request.get("name");
-		String args = request.get("args");
+	public CompletableFuture<ResponseEntity<Object>> call(@RequestBody Map<String, Object> request) {
+		String name = (String) request.get("name");
+		Object args = request.get("args");
+
 
+		ToolEntry toolEntry = toolRegistry.find(name);
+		if (toolEntry == null) {
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Tool not found: " + name));
+		}
+		if (args instanceof String) {
+			return toolExecutor.call(toolEntry, toArguments(args)).<ResponseEntity<Object>>map(result -> {
+				if (Boolean.TRUE.equals(result.isError())) {
+					throw new IllegalStateException("Error calling tool: " + result.content());
+				}
+				return ResponseEntity.ok(ModelOptionsUtils.toJsonString(result.content()));
+			}).toFuture();
+		}
+		return toolExecutor.call(toolEntry, toArguments(args)).<ResponseEntity<Object>>map(ResponseEntity::ok).toFuture();
+	}
 
-		ToolCallback toolCallback = ToolCallbackUtils.findToolCallbackByName(toolCallbackProvider.getToolCallbacks(), this.completeName(name));
-		if (toolCallback == null) {
-			return ResponseEntity.badRequest().body("Tool not found: " + name);
+	/**
+	 * Run several independent tool calls in parallel, up to the configured concurrency,
+	 * and return the results in call order. Each entry carries either the tool result or
+	 * the error it raised, so one failure does not fail the batch.
+	 */
+	@PostMapping("/call_batch")
+	public CompletableFuture<ResponseEntity<List<BatchResult>>> callBatch(@RequestBody Map<String, List<Map<String, Object>>> request) {
+		List<Map<String, Object>> calls = request.getOrDefault("calls", List.of());
+		return Flux.range(0, calls.size())
+			.flatMapSequential(index -> callEntry(index, calls.get(index)), properties.getBatchConcurrency())
+			.collectList()
+			.map(ResponseEntity::ok)
+			.toFuture();
+	}
+
+	/**
+	 * Like {@link #callBatch(Map)} but streams each result as a JSON line as soon as it
+	 * completes. Entries carry the index of their call.
+	 */
+	@PostMapping(value = "/call_batch/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<BatchResult> callBatchStream(@RequestBody Map<String, List<Map<String, Object>>> request) {
+		List<Map<String, Object>> calls = request.getOrDefault("calls", List.of());
+		return Flux.range(0, calls.size())
+			.flatMap(index -> callEntry(index, calls.get(index)), properties.getBatchConcurrency());
+	}
+
+	private Mono<BatchResult> callEntry(int index, Map<String, Object> call) {
+		String name = (String) call.get("name");
+		ToolEntry toolEntry = toolRegistry.find(name);
+		if (toolEntry == null) {
+			return Mono.just(BatchResult.failure(index, "Tool not found: " + name));
+		}
+		return Mono.defer(() -> toolExecutor.call(toolEntry, toArguments(call.get("args"))))
+			.map(result -> Boolean.TRUE.equals(result.isError())
+					? BatchResult.failure(index, "Error calling tool: " + result.content())
+					: BatchResult.success(index, result.content()))
+			.onErrorResume(e -> Mono.just(BatchResult.failure(index, String.valueOf(e.getMessage()))));
+	}
+
+	/**
+	 * Accept arguments as a JSON object, or as a JSON encoded string from older clients
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> toArguments(Object args) {
+		if (args == null) {
+			return Map.of();
+		}
+		if (args instanceof Map<?, ?> map) {
+			return (Map<String, Object>) map;
+		}
+		if (args instanceof String text) {
+			if (text.isBlank()) {
+				return Map.of();
+			}
+			try {
+				return objectMapper.readValue(text, new TypeReference<>() {
+				});
+			}
+			catch (Exception e) {
+				throw new IllegalArgumentException("Invalid tool arguments: " + e.getMessage(), e);
+			}
 		}
-		Object result = toolCallback.call(args);
-		return ResponseEntity.ok(result);
+		throw new IllegalArgumentException("Tool arguments must be a JSON object");
 	}
 
-	private String completeName(String name) {
-		return "spring_ai_mcp_client_" + name;
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
 	}
 
-	@PostMapping("/list")
-	public ResponseEntity<List<ToolDefinition>> list() {
-		List<ToolDefinition> definitions = new ArrayList<>();
-		ToolCallback[] toolCallbacks = toolCallbackProvider.getToolCallbacks();
-		for(ToolCallback toolCallback : toolCallbacks) {
-			definitions.add(toolCallback.getToolDefinition());
+	/**
+	 * List the tool definitions, tagged with a hash of their content. A request whose
+	 * {@code If-None-Match} carries the current tag gets an empty 304.
+	 */
+	@RequestMapping(value = "/list", method = { RequestMethod.GET, RequestMethod.POST })
+	public ResponseEntity<List<ToolDefinition>> list(
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		String etag = toolRegistry.getETag();
+		if (etag.equals(ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
 		}
-		return ResponseEntity.ok(definitions);
+		return ResponseEntity.ok().eTag(etag).body(toolRegistry.getToolDefinitions());
 	}
 
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.util.List;
+
+/**
+ * Outcome of one call of a batch, either the typed tool content or an error message
+ * @param index position of the call in the batch
+ * @param result tool content
+ * @param error error message
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(int index, List<McpSchema.Content> result, String error) {
+
+	public static BatchResult success(int index, List<McpSchema.Content> result) {
+		return new BatchResult(index, result, null);
+	}
+
+	public static BatchResult failure(int index, String error) {
+		return new BatchResult(index, null, error);
+	}
+
+}
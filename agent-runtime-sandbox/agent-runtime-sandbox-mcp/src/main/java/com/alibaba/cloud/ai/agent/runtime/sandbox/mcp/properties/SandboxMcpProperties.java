@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sandbox MCP server configuration class.
+ */
+@ConfigurationProperties(prefix = "sandbox.mcp")
+public class SandboxMcpProperties {
+
+	/**
+	 * Maximum number of calls of one batch running at the same time.
+	 */
+	private int batchConcurrency = 8;
+
+	/**
+	 * Cache results of read-only tools in memory. Mutating tools invalidate the paths
+	 * they touch, so only enable it when nothing else writes to the served files.
+	 */
+	private boolean cacheEnabled = false;
+
+	private int cacheMaxEntries = 1024;
+
+	/**
+	 * Maximum age of a cached result, bounds how long writes that bypass the MCP server
+	 * stay unseen.
+	 */
+	private Duration cacheTtl = Duration.ofMinutes(5);
+
+	private Set<String> cacheReadOnlyTools = new HashSet<>(List.of("read_file", "read_text_file",
+			"read_media_file", "read_multiple_files", "list_directory", "list_directory_with_sizes", "directory_tree",
+			"get_file_info", "search_files", "list_allowed_directories"));
+
+	private Set<String> cacheMutatingTools = new HashSet<>(
+			List.of("write_file", "edit_file", "move_file", "create_directory"));
+
+	/**
+	 * Number of processes started per configured MCP server, overridable per server
+	 * name in {@code pool-sizes}.
+	 */
+	private int poolSize = 1;
+
+	private Map<String, Integer> poolSizes = new HashMap<>();
+
+	/**
+	 * Servers whose tools depend on state kept by the process. They always run a single
+	 * process so calls of a session stay on it.
+	 */
+	private Set<String> statefulServers = new HashSet<>(Set.of("playwright"));
+
+	/**
+	 * Interval between pings of the MCP server processes. A process that does not answer
+	 * within the timeout is restarted.
+	 */
+	private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+	private Duration healthCheckTimeout = Duration.ofSeconds(5);
+
+	/**
+	 * Delay before restarting a failed MCP server process, doubled on each consecutive
+	 * failure up to the maximum.
+	 */
+	private Duration restartBackoff = Duration.ofSeconds(1);
+
+	private Duration restartBackoffMax = Duration.ofMinutes(1);
+
+	/**
+	 * Maximum number of calls of one tool running at the same time, overridable per tool
+	 * name in {@code tool-concurrencies}. Further calls are rejected so a slow tool
+	 * cannot starve the others.
+	 */
+	private int toolConcurrency = 16;
+
+	private Map<String, Integer> toolConcurrencies = new HashMap<>();
+
+	/**
+	 * Time a tool call may take, overridable per tool name in {@code tool-timeouts}.
+	 */
+	private Duration toolTimeout = Duration.ofSeconds(60);
+
+	private Map<String, Duration> toolTimeouts = new HashMap<>();
+
+	public int getBatchConcurrency() {
+		return batchConcurrency;
+	}
+
+	public void setBatchConcurrency(int batchConcurrency) {
+		this.batchConcurrency = batchConcurrency;
+	}
+
+	public boolean isCacheEnabled() {
+		return cacheEnabled;
+	}
+
+	public void setCacheEnabled(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+
+	public int getCacheMaxEntries() {
+		return cacheMaxEntries;
+	}
+
+	public void setCacheMaxEntries(int cacheMaxEntries) {
+		this.cacheMaxEntries = cacheMaxEntries;
+	}
+
+	public Duration getCacheTtl() {
+		return cacheTtl;
+	}
+
+	public void setCacheTtl(Duration cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+
+	public Set<String> getCacheReadOnlyTools() {
+		return cacheReadOnlyTools;
+	}
+
+	public void setCacheReadOnlyTools(Set<String> cacheReadOnlyTools) {
+		this.cacheReadOnlyTools = cacheReadOnlyTools;
+	}
+
+	public Set<String> getCacheMutatingTools() {
+		return cacheMutatingTools;
+	}
+
+	public void setCacheMutatingTools(Set<String> cacheMutatingTools) {
+		this.cacheMutatingTools = cacheMutatingTools;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public Map<String, Integer> getPoolSizes() {
+		return poolSizes;
+	}
+
+	public void setPoolSizes(Map<String, Integer> poolSizes) {
+		this.poolSizes = poolSizes;
+	}
+
+	public Set<String> getStatefulServers() {
+		return statefulServers;
+	}
+
+	public void setStatefulServers(Set<String> statefulServers) {
+		this.statefulServers = statefulServers;
+	}
+
+	public Duration getHealthCheckInterval() {
+		return healthCheckInterval;
+	}
+
+	public void setHealthCheckInterval(Duration healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	public Duration getHealthCheckTimeout() {
+		return healthCheckTimeout;
+	}
+
+	public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+		this.healthCheckTimeout = healthCheckTimeout;
+	}
+
+	public Duration getRestartBackoff() {
+		return restartBackoff;
+	}
+
+	public void setRestartBackoff(Duration restartBackoff) {
+		this.restartBackoff = restartBackoff;
+	}
+
+	public Duration getRestartBackoffMax() {
+		return restartBackoffMax;
+	}
+
+	public void setRestartBackoffMax(Duration restartBackoffMax) {
+		this.restartBackoffMax = restartBackoffMax;
+	}
+
+	public int getToolConcurrency() {
+		return toolConcurrency;
+	}
+
+	public void setToolConcurrency(int toolConcurrency) {
+		this.toolConcurrency = toolConcurrency;
+	}
+
+	public Map<String, Integer> getToolConcurrencies() {
+		return toolConcurrencies;
+	}
+
+	public void setToolConcurrencies(Map<String, Integer> toolConcurrencies) {
+		this.toolConcurrencies = toolConcurrencies;
+	}
+
+	public Duration getToolTimeout() {
+		return toolTimeout;
+	}
+
+	public void setToolTimeout(Duration toolTimeout) {
+		this.toolTimeout = toolTimeout;
+	}
+
+	public Map<String, Duration> getToolTimeouts() {
+		return toolTimeouts;
+	}
+
+	public void setToolTimeouts(Map<String, Duration> toolTimeouts) {
+		this.toolTimeouts = toolTimeouts;
+	}
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Pool of stdio MCP server processes, several per configured server.
+ *
+ * <p>
+ * Calls to a stateless server go to the ready member with the fewest calls in flight,
+ * so a slow call only holds up one process. Stateful servers, whose tools depend on
+ * state kept by the process such as an open browser page, run a single member that
+ * every call sticks to.
+ *
+ * <p>
+ * All members are started and warmed up, initialized and their tools listed, in the
+ * background at startup, so package resolution by {@code npx} happens before the first
+ * call. A supervisor pings ready members and restarts the ones that stop answering,
+ * backing off exponentially while a server keeps failing.
+ *
+ * <p>
+ * The stdio transport rejects messages enqueued from several threads at once, so
+ * requests to a member are sent from a single thread per member while responses still
+ * complete independently.
+ */
+@Component
+public class McpClientPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(McpClientPool.class);
+
+	private final McpStdioClientProperties stdioProperties;
+
+	private final McpClientCommonProperties commonProperties;
+
+	private final SandboxMcpProperties properties;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final Map<String, ServerPool> servers = new LinkedHashMap<>();
+
+	private final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "mcp-supervisor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public McpClientPool(McpStdioClientProperties stdioProperties, McpClientCommonProperties commonProperties,
+			SandboxMcpProperties properties, ApplicationEventPublisher eventPublisher) {
+		this.stdioProperties = stdioProperties;
+		this.commonProperties = commonProperties;
+		this.properties = properties;
+		this.eventPublisher = eventPublisher;
+	}
+
+	@PostConstruct
+	public void start() {
+		for (Map.Entry<String, ServerParameters> server : stdioProperties.toServerParameters().entrySet()) {
+			String name = server.getKey();
+			boolean stateful = properties.getStatefulServers().contains(name);
+			int size = stateful ? 1 : Math.max(1, properties.getPoolSizes().getOrDefault(name, properties.getPoolSize()));
+
+			List<Member> members = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				members.add(new Member(name, i, server.getValue()));
+			}
+			servers.put(name, new ServerPool(members, stateful));
+			logger.info("Starting {} MCP client(s) for server: {}{}", size, name, stateful ? " (stateful)" : "");
+		}
+
+		servers.values().forEach(pool -> pool.members.forEach(this::restartAsync));
+		long interval = properties.getHealthCheckInterval().toMillis();
+		supervisor.scheduleWithFixedDelay(this::supervise, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Run a call on a ready member of the server's pool
+	 * @param server server name
+	 * @param call call to run with the selected client
+	 * @return call result
+	 */
+	public <T> Mono<T> execute(String server, Function<McpAsyncClient, Mono<T>> call) {
+		return Mono.defer(() -> {
+			ServerPool pool = servers.get(server);
+			if (pool == null) {
+				return Mono.error(new IllegalArgumentException("Unknown MCP server: " + server));
+			}
+			Member member = pool.select();
+			if (member == null) {
+				return Mono.error(new IllegalStateException("MCP server is not ready: " + server));
+			}
+			McpAsyncClient client = member.client;
+			member.inFlight.incrementAndGet();
+			return call.apply(client).subscribeOn(member.sender).doFinally(signal -> member.inFlight.decrementAndGet());
+		});
+	}
+
+	/**
+	 * List the tools of a server
+	 */
+	public Mono<McpSchema.ListToolsResult> listTools(String server) {
+		return execute(server, McpAsyncClient::listTools);
+	}
+
+	/**
+	 * Get a client of a ready member, used where any member stands for the server
+	 * @return client, or {@code null} when no member is ready
+	 */
+	public McpAsyncClient primary(String server) {
+		ServerPool pool = servers.get(server);
+		if (pool == null) {
+			return null;
+		}
+		return pool.members.stream().filter(Member::isReady).findFirst().map(member -> member.client).orElse(null);
+	}
+
+	/**
+	 * Get the configured server names
+	 */
+	public Set<String> getServerNames() {
+		return servers.keySet();
+	}
+
+	/**
+	 * Whether the server has a ready member. Readiness is tracked by the supervisor,
+	 * which pings the members in the background, so this never waits on a server.
+	 */
+	public boolean isReady(String server) {
+		ServerPool pool = servers.get(server);
+		return pool != null && pool.members.stream().anyMatch(Member::isReady);
+	}
+
+	/**
+	 * Whether every configured server has a ready member
+	 */
+	public boolean isReady() {
+		return servers.keySet().stream().allMatch(this::isReady);
+	}
+
+	/**
+	 * Get the readiness of each server
+	 */
+	public Map<String, Boolean> getReadiness() {
+		Map<String, Boolean> readiness = new LinkedHashMap<>();
+		servers.keySet().forEach(server -> readiness.put(server, isReady(server)));
+		return readiness;
+	}
+
+	/**
+	 * Get the clients of all started members
+	 */
+	public List<McpAsyncClient> getClients() {
+		return servers.values()
+			.stream()
+			.flatMap(pool -> pool.members.stream())
+			.map(member -> member.client)
+			.filter(Objects::nonNull)
+			.toList();
+	}
+
+	private void supervise() {
+		long now = System.currentTimeMillis();
+		for (ServerPool pool : servers.values()) {
+			for (Member member : pool.members) {
+				State state = member.state.get();
+				if (state == State.FAILED && now >= member.retryAt) {
+					restartAsync(member);
+				}
+				else if (state == State.READY && member.pinging.compareAndSet(false, true)) {
+					// A ping outliving a restart must not fail the new process
+					McpAsyncClient client = member.client;
+					client.ping()
+						.subscribeOn(member.sender)
+						.timeout(properties.getHealthCheckTimeout())
+						.doFinally(signal -> member.pinging.set(false))
+						.subscribe(pong -> member.attempts = 0, error -> {
+							if (member.client == client) {
+								fail(member, error);
+							}
+						});
+				}
+			}
+		}
+	}
+
+	private void restartAsync(Member member) {
+		State state = member.state.get();
+		if (state != State.STARTING && member.state.compareAndSet(state, State.STARTING)) {
+			Mono.fromRunnable(() -> restart(member)).subscribeOn(Schedulers.boundedElastic()).subscribe();
+		}
+	}
+
+	private void restart(Member member) {
+		boolean serverWasReady = isReady(member.server);
+		McpAsyncClient previous = member.client;
+		if (previous != null) {
+			previous.closeGracefully().onErrorResume(e -> Mono.empty()).subscribe();
+		}
+
+		try {
+			McpAsyncClient client = createClient(member.server, member.serverParameters);
+			member.client = client;
+			client.initialize().subscribeOn(member.sender).block();
+			client.listTools().subscribeOn(member.sender).block();
+		}
+		catch (Exception e) {
+			fail(member, e);
+			return;
+		}
+
+		member.state.set(State.READY);
+		logger.info("MCP client {}#{} is ready", member.server, member.index);
+		if (!serverWasReady) {
+			eventPublisher.publishEvent(new ToolsChangedEvent(member.server));
+		}
+	}
+
+	private void fail(Member member, Throwable error) {
+		State state = member.state.get();
+		if (state == State.FAILED || !member.state.compareAndSet(state, State.FAILED)) {
+			return;
+		}
+		long backoff = Math.min(properties.getRestartBackoffMax().toMillis(),
+				properties.getRestartBackoff().toMillis() << Math.min(member.attempts, 20));
+		member.attempts++;
+		member.retryAt = System.currentTimeMillis() + backoff;
+		logger.warn("MCP client {}#{} failed, restarting in {} ms: {}", member.server, member.index, backoff,
+				error.getMessage());
+	}
+
+	private McpAsyncClient createClient(String server, ServerParameters serverParameters) {
+		return McpClient.async(new StdioClientTransport(serverParameters))
+			.clientInfo(new McpSchema.Implementation(commonProperties.getName() + " - " + server,
+					commonProperties.getVersion()))
+			.requestTimeout(commonProperties.getRequestTimeout())
+			.toolsChangeConsumer(tools -> {
+				eventPublisher.publishEvent(new ToolsChangedEvent(server));
+				return Mono.empty();
+			})
+			.build();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		supervisor.shutdownNow();
+		for (ServerPool pool : servers.values()) {
+			for (Member member : pool.members) {
+				if (member.client != null) {
+					try {
+						member.client.closeGracefully().block(Duration.ofSeconds(5));
+					}
+					catch (Exception e) {
+						logger.warn("Failed to close MCP client {}#{}", member.server, member.index, e);
+					}
+				}
+				member.sender.dispose();
+			}
+		}
+	}
+
+	private enum State {
+
+		STARTING, READY, FAILED
+
+	}
+
+	/**
+	 * Members of one server
+	 */
+	private static class ServerPool {
+
+		private final List<Member> members;
+
+		private final boolean stateful;
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		ServerPool(List<Member> members, boolean stateful) {
+			this.members = members;
+			this.stateful = stateful;
+		}
+
+		Member select() {
+			if (stateful || members.size() == 1) {
+				Member member = members.get(0);
+				return member.isReady() ? member : null;
+			}
+			// Least in flight, starting from a rotating offset so ties spread out
+			int offset = Math.floorMod(next.getAndIncrement(), members.size());
+			Member selected = null;
+			for (int i = 0; i < members.size(); i++) {
+				Member candidate = members.get((offset + i) % members.size());
+				if (candidate.isReady()
+						&& (selected == null || candidate.inFlight.get() < selected.inFlight.get())) {
+					selected = candidate;
+				}
+			}
+			return selected;
+		}
+
+	}
+
+	/**
+	 * Supervised server process with its calls in flight
+	 */
+	private static class Member {
+
+		private final String server;
+
+		private final int index;
+
+		private final ServerParameters serverParameters;
+
+		private final Scheduler sender;
+
+		private final AtomicReference<State> state = new AtomicReference<>(State.FAILED);
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicBoolean pinging = new AtomicBoolean();
+
+		private volatile McpAsyncClient client;
+
+		// Consecutive failures, reset once a restarted process answers a ping
+		private volatile int attempts;
+
+		private volatile long retryAt;
+
+		Member(String server, int index, ServerParameters serverParameters) {
+			this.server = server;
+			this.index = index;
+			this.serverParameters = serverParameters;
+			this.sender = Schedulers.newSingle("mcp-sender-" + server + "-" + index, true);
+		}
+
+		boolean isReady() {
+			return state.get() == State.READY;
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import io.modelcontextprotocol.server.McpAsyncServer;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes the aggregated tools of all MCP servers on the sandbox's own MCP server.
+ *
+ * <p>
+ * Agents with a native MCP client connect to the SSE endpoint and call tools without
+ * the REST translation of {@code /tools/call}. Each connection is its own MCP session,
+ * and calls on a session are pipelined. Tools are exposed under their unprefixed names,
+ * {@code <server>_<tool>}, and kept in step with the registry, so connected clients are
+ * notified when a server warms up or changes its tools.
+ */
+@Component
+public class McpServerTools {
+
+	private static final Logger logger = LoggerFactory.getLogger(McpServerTools.class);
+
+	private final McpAsyncServer mcpServer;
+
+	private final ToolExecutor toolExecutor;
+
+	private final Map<String, ToolEntry> published = new HashMap<>();
+
+	public McpServerTools(McpAsyncServer mcpServer, ToolExecutor toolExecutor) {
+		this.mcpServer = mcpServer;
+		this.toolExecutor = toolExecutor;
+	}
+
+	@EventListener
+	public synchronized void onRegistryUpdated(ToolRegistryUpdatedEvent event) {
+		Map<String, ToolEntry> current = new HashMap<>();
+		for (ToolEntry toolEntry : event.tools()) {
+			current.putIfAbsent(exposedName(toolEntry), toolEntry);
+		}
+
+		for (Map.Entry<String, ToolEntry> entry : List.copyOf(published.entrySet())) {
+			if (!entry.getValue().equals(current.get(entry.getKey()))) {
+				mcpServer.removeTool(entry.getKey()).onErrorResume(e -> Mono.empty()).block();
+				published.remove(entry.getKey());
+			}
+		}
+		for (Map.Entry<String, ToolEntry> entry : current.entrySet()) {
+			if (!published.containsKey(entry.getKey())) {
+				mcpServer.addTool(toSpecification(entry.getKey(), entry.getValue())).block();
+				published.put(entry.getKey(), entry.getValue());
+			}
+		}
+		logger.info("MCP server publishes {} tools", published.size());
+	}
+
+	private McpServerFeatures.AsyncToolSpecification toSpecification(String name, ToolEntry toolEntry) {
+		McpSchema.Tool tool = new McpSchema.Tool(name, toolEntry.tool().description(),
+				toolEntry.tool().inputSchema());
+		return new McpServerFeatures.AsyncToolSpecification(tool,
+				(McpAsyncServerExchange exchange, Map<String, Object> args) -> toolExecutor.call(toolEntry, args)
+					.onErrorResume(e -> Mono.just(new McpSchema.CallToolResult(
+							List.of(new McpSchema.TextContent(String.valueOf(e.getMessage()))), true))));
+	}
+
+	private static String exposedName(ToolEntry toolEntry) {
+		String name = toolEntry.definition().name();
+		return name.startsWith(ToolRegistry.TOOL_NAME_PREFIX) ? name.substring(ToolRegistry.TOOL_NAME_PREFIX.length())
+				: name;
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes tool calls on the async MCP clients.
+ *
+ * <p>
+ * Calls are sent without waiting for earlier ones, so many JSON-RPC requests can be
+ * in flight on one MCP server connection, matched to their responses by request ID.
+ *
+ * <p>
+ * Each tool runs in its own bulkhead: calls beyond its concurrency limit are rejected
+ * instead of queueing behind slow ones, and calls exceeding its timeout fail. The
+ * latency of every call is recorded per tool and outcome, along with the number of
+ * calls in flight.
+ */
+@Service
+public class ToolExecutor {
+
+	private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+	private final McpClientPool clientPool;
+
+	private final ToolResultCache toolResultCache;
+
+	private final SandboxMcpProperties properties;
+
+	private final MeterRegistry meterRegistry;
+
+	public ToolExecutor(McpClientPool clientPool, ToolResultCache toolResultCache, SandboxMcpProperties properties,
+			MeterRegistry meterRegistry) {
+		this.clientPool = clientPool;
+		this.toolResultCache = toolResultCache;
+		this.properties = properties;
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Call a tool, serving read-only tools from the cache
+	 * @param toolEntry tool to call
+	 * @param args tool arguments
+	 * @return tool result, which reports tool errors through {@code isError}
+	 */
+	public Mono<McpSchema.CallToolResult> call(ToolEntry toolEntry, Map<String, Object> args) {
+		if (toolResultCache.isCacheable(toolEntry)) {
+			return Mono.defer(() -> {
+				McpSchema.CallToolResult cached = toolResultCache.get(toolEntry, args);
+				if (cached != null) {
+					return Mono.just(cached);
+				}
+				long generation = toolResultCache.generation();
+				return execute(toolEntry, args)
+					.doOnNext(result -> toolResultCache.put(toolEntry, args, result, generation));
+			});
+		}
+		return Mono.defer(() -> {
+			toolResultCache.invalidate(toolEntry, args);
+			return execute(toolEntry, args).doFinally(signal -> toolResultCache.invalidate(toolEntry, args));
+		});
+	}
+
+	private Mono<McpSchema.CallToolResult> execute(ToolEntry toolEntry, Map<String, Object> args) {
+		McpSchema.CallToolRequest request = new McpSchema.CallToolRequest(toolEntry.tool().name(),
+				args != null ? args : Map.of());
+		Bulkhead bulkhead = bulkheads.computeIfAbsent(toolEntry.definition().name(),
+				key -> createBulkhead(toolEntry));
+
+		return Mono.defer(() -> {
+			if (!bulkhead.permits.tryAcquire()) {
+				record(toolEntry, "rejected", 0);
+				return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+						"Too many concurrent calls to tool: " + toolEntry.tool().name()));
+			}
+			bulkhead.inFlight.incrementAndGet();
+			long start = System.nanoTime();
+			return clientPool.execute(toolEntry.server(), client -> client.callTool(request))
+				.timeout(bulkhead.timeout)
+				.onErrorMap(TimeoutException.class,
+						e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+								"Tool " + toolEntry.tool().name() + " timed out after " + bulkhead.timeout))
+				.doOnSuccess(result -> record(toolEntry,
+						result != null && Boolean.TRUE.equals(result.isError()) ? "error" : "success", start))
+				.doOnError(e -> record(toolEntry, e instanceof ResponseStatusException ? "timeout" : "failure", start))
+				.doOnCancel(() -> record(toolEntry, "cancelled", start))
+				.doFinally(signal -> {
+					bulkhead.inFlight.decrementAndGet();
+					bulkhead.permits.release();
+				});
+		});
+	}
+
+	private Bulkhead createBulkhead(ToolEntry toolEntry) {
+		String tool = toolEntry.tool().name();
+		Bulkhead bulkhead = new Bulkhead(
+				properties.getToolConcurrencies().getOrDefault(tool, properties.getToolConcurrency()),
+				properties.getToolTimeouts().getOrDefault(tool, properties.getToolTimeout()));
+		Gauge.builder("sandbox.mcp.tool.in_flight", bulkhead.inFlight, AtomicInteger::get)
+			.description("Tool calls in flight")
+			.tags(tags(toolEntry))
+			.register(meterRegistry);
+		return bulkhead;
+	}
+
+	private void record(ToolEntry toolEntry, String outcome, long start) {
+		Timer.builder("sandbox.mcp.tool.calls")
+			.description("Tool call latency")
+			.tags(tags(toolEntry))
+			.tag("outcome", outcome)
+			.publishPercentileHistogram()
+			.register(meterRegistry)
+			.record(start > 0 ? System.nanoTime() - start : 0, TimeUnit.NANOSECONDS);
+	}
+
+	private static Tags tags(ToolEntry toolEntry) {
+		return Tags.of("server", toolEntry.server(), "tool", toolEntry.tool().name());
+	}
+
+	/**
+	 * Concurrency limit and timeout of one tool
+	 */
+	private static class Bulkhead {
+
+		private final Semaphore permits;
+
+		private final Duration timeout;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		Bulkhead(int concurrency, Duration timeout) {
+			this.permits = new Semaphore(Math.max(1, concurrency));
+			this.timeout = timeout;
+		}
+
+	}
+
+}
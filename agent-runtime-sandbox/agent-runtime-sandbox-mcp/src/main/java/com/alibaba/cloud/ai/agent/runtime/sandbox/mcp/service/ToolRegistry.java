@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.AsyncMcpToolCallback;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Index of MCP tools by name.
+ *
+ * <p>
+ * The index is built once and swapped atomically when an MCP server announces a tool
+ * list change, so dispatch is a single map lookup. Each tool is reachable by its full
+ * name ({@code spring_ai_mcp_client_<server>_<tool>}) and by the name without the
+ * client prefix, exactly or in lower case.
+ */
+@Component
+public class ToolRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(ToolRegistry.class);
+
+	public static final String TOOL_NAME_PREFIX = "spring_ai_mcp_client_";
+
+	private final McpClientPool clientPool;
+
+	private final SandboxMcpProperties properties;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private volatile Snapshot snapshot;
+
+	public ToolRegistry(McpClientPool clientPool, SandboxMcpProperties properties,
+			ApplicationEventPublisher eventPublisher) {
+		this.clientPool = clientPool;
+		this.properties = properties;
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Find a tool by its full or unprefixed name
+	 */
+	public ToolEntry find(String name) {
+		if (name == null) {
+			return null;
+		}
+		Map<String, ToolEntry> index = current().index;
+		ToolEntry toolEntry = index.get(name);
+		return toolEntry != null ? toolEntry : index.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Get all tools
+	 */
+	public List<ToolEntry> getTools() {
+		return current().tools;
+	}
+
+	/**
+	 * Get all tool definitions
+	 */
+	public List<ToolDefinition> getToolDefinitions() {
+		return current().toolDefinitions;
+	}
+
+	/**
+	 * Rebuild the index from the MCP clients. A server that fails to list its tools keeps
+	 * the tools it had in the previous index.
+	 */
+	public synchronized void refresh() {
+		List<ToolEntry> tools = new ArrayList<>();
+		for (String server : clientPool.getServerNames()) {
+			// Members of a pool run the same server, so one lists for all. Servers still
+			// warming up are added once they become ready
+			McpAsyncClient client = clientPool.primary(server);
+			if (client == null) {
+				continue;
+			}
+			McpSchema.ListToolsResult result;
+			try {
+				result = clientPool.listTools(server).timeout(properties.getToolTimeout()).block();
+			}
+			catch (Exception e) {
+				logger.warn("Failed to list tools of MCP server {}, keeping its previous tools: {}", server,
+						e.getMessage());
+				if (snapshot != null) {
+					snapshot.tools.stream().filter(toolEntry -> toolEntry.server().equals(server)).forEach(tools::add);
+				}
+				continue;
+			}
+			if (result == null || result.tools() == null) {
+				continue;
+			}
+			for (McpSchema.Tool tool : result.tools()) {
+				ToolDefinition definition = new AsyncMcpToolCallback(client, tool).getToolDefinition();
+				tools.add(new ToolEntry(server, tool, definition));
+			}
+		}
+
+		Map<String, ToolEntry> index = new HashMap<>();
+		for (ToolEntry toolEntry : tools) {
+			String fullName = toolEntry.definition().name();
+			String shortName = fullName.startsWith(TOOL_NAME_PREFIX) ? fullName.substring(TOOL_NAME_PREFIX.length())
+					: fullName;
+			for (String key : List.of(fullName, shortName, fullName.toLowerCase(Locale.ROOT),
+					shortName.toLowerCase(Locale.ROOT))) {
+				ToolEntry existing = index.putIfAbsent(key, toolEntry);
+				if (existing != null && existing != toolEntry) {
+					logger.warn("Tool name {} is ambiguous, keeping {}", key, existing.definition().name());
+				}
+			}
+		}
+		List<ToolDefinition> toolDefinitions = tools.stream().map(ToolEntry::definition).toList();
+		snapshot = new Snapshot(Map.copyOf(index), List.copyOf(tools), toolDefinitions, computeETag(toolDefinitions));
+		logger.info("Tool registry built with {} tools", tools.size());
+		eventPublisher.publishEvent(new ToolRegistryUpdatedEvent(snapshot.tools));
+	}
+
+	/**
+	 * Build the index once the application is up. Servers warmed up during startup
+	 * announced themselves before event listeners were registered.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		refreshAsync();
+	}
+
+	/**
+	 * Rebuild the index off the client thread that delivered the change notification
+	 */
+	@EventListener
+	public void onToolsChanged(ToolsChangedEvent event) {
+		logger.info("Tool list changed on MCP server: {}", event.server());
+		refreshAsync();
+	}
+
+	private void refreshAsync() {
+		CompletableFuture.runAsync(this::refresh).exceptionally(e -> {
+			logger.error("Failed to rebuild the tool registry", e);
+			return null;
+		});
+	}
+
+	/**
+	 * Get the entity tag of the tool definitions, a hash of their JSON form
+	 */
+	public String getETag() {
+		return current().etag;
+	}
+
+	private static String computeETag(List<ToolDefinition> toolDefinitions) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+				.digest(ModelOptionsUtils.toJsonString(toolDefinitions).getBytes(StandardCharsets.UTF_8));
+			return "\"" + HexFormat.of().formatHex(digest) + "\"";
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					refresh();
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+
+	private record Snapshot(Map<String, ToolEntry> index, List<ToolEntry> tools,
+			List<ToolDefinition> toolDefinitions, String etag) {
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for results of read-only tools.
+ *
+ * <p>
+ * Entries are keyed by tool and canonical arguments (object keys sorted), expire after
+ * the configured TTL and are evicted in LRU order. A call to a mutating tool drops the
+ * entries of the same MCP server whose paths equal, contain or lie below the paths it
+ * touched. Any other tool may have side effects the cache cannot see, so it drops all
+ * entries of its server. A result read while a mutation was in flight is not stored.
+ */
+@Component
+public class ToolResultCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ToolResultCache.class);
+
+	private static final List<String> PATH_ARGUMENTS = List.of("path", "paths", "source", "destination");
+
+	private final SandboxMcpProperties properties;
+
+	private final ObjectMapper canonicalMapper = new ObjectMapper()
+		.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LinkedHashMap<String, CachedResult> entries;
+
+	public ToolResultCache(SandboxMcpProperties properties) {
+		this.properties = properties;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+				return size() > properties.getCacheMaxEntries();
+			}
+		};
+	}
+
+	/**
+	 * Whether results of the tool may be cached
+	 */
+	public boolean isCacheable(ToolEntry toolEntry) {
+		return properties.isCacheEnabled() && properties.getCacheReadOnlyTools().contains(toolEntry.tool().name());
+	}
+
+	/**
+	 * Look up a cached result
+	 */
+	public McpSchema.CallToolResult get(ToolEntry toolEntry, Map<String, Object> args) {
+		String key = key(toolEntry, args);
+		if (key == null) {
+			return null;
+		}
+		synchronized (entries) {
+			CachedResult cached = entries.get(key);
+			if (cached == null) {
+				return null;
+			}
+			if (System.nanoTime() - cached.expiresAt >= 0) {
+				entries.remove(key);
+				return null;
+			}
+			return cached.result;
+		}
+	}
+
+	/**
+	 * Current generation, to be passed to {@link #put} once the read completes
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	/**
+	 * Store a successful result unless a mutation started since {@code readGeneration}
+	 */
+	public void put(ToolEntry toolEntry, Map<String, Object> args, McpSchema.CallToolResult result,
+			long readGeneration) {
+		String key = key(toolEntry, args);
+		if (key == null || Boolean.TRUE.equals(result.isError())) {
+			return;
+		}
+		CachedResult cached = new CachedResult(toolEntry.server(), paths(args), result,
+				System.nanoTime() + properties.getCacheTtl().toNanos());
+		synchronized (entries) {
+			if (generation.get() == readGeneration) {
+				entries.put(key, cached);
+			}
+		}
+	}
+
+	/**
+	 * Drop the entries a call to a tool that is not read-only may have made stale. Called
+	 * both when the call starts and when it completes.
+	 */
+	public void invalidate(ToolEntry toolEntry, Map<String, Object> args) {
+		if (!properties.isCacheEnabled() || isCacheable(toolEntry)) {
+			return;
+		}
+		List<Path> touched = properties.getCacheMutatingTools().contains(toolEntry.tool().name()) ? paths(args)
+				: List.of();
+		synchronized (entries) {
+			generation.incrementAndGet();
+			Iterator<CachedResult> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				CachedResult cached = iterator.next();
+				if (cached.server.equals(toolEntry.server()) && (touched.isEmpty() || cached.overlaps(touched))) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private String key(ToolEntry toolEntry, Map<String, Object> args) {
+		try {
+			return toolEntry.definition().name() + ":"
+					+ canonicalMapper.writeValueAsString(args != null ? args : Map.of());
+		}
+		catch (Exception e) {
+			logger.debug("Not caching call with unserializable args to: {}", toolEntry.definition().name());
+			return null;
+		}
+	}
+
+	private List<Path> paths(Map<String, Object> args) {
+		List<Path> paths = new ArrayList<>();
+		if (args == null) {
+			return paths;
+		}
+		try {
+			for (String argument : PATH_ARGUMENTS) {
+				Object value = args.get(argument);
+				if (value instanceof String path) {
+					paths.add(Path.of(path).normalize());
+				}
+				else if (value instanceof Collection<?> values) {
+					values.forEach(item -> paths.add(Path.of(String.valueOf(item)).normalize()));
+				}
+			}
+		}
+		catch (Exception e) {
+			logger.debug("Failed to extract paths from tool args", e);
+		}
+		return paths;
+	}
+
+	/**
+	 * Cached tool result with the paths it was read from
+	 */
+	private record CachedResult(String server, List<Path> paths, McpSchema.CallToolResult result, long expiresAt) {
+
+		boolean overlaps(List<Path> touched) {
+			for (Path path : paths) {
+				for (Path other : touched) {
+					if (path.startsWith(other) || other.startsWith(path)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.service;
+
+import com.alibaba.cloud.ai.agent.runtime.sandbox.mcp.properties.SandboxMcpProperties;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Invalidation and expiry of cached tool results
+ */
+@DisplayName("Tool Result Cache Test")
+public class ToolResultCacheTest {
+
+	private static final ToolEntry READ_FILE = entry("filesystem", "read_file");
+
+	private static final ToolEntry WRITE_FILE = entry("filesystem", "write_file");
+
+	private static final McpSchema.CallToolResult RESULT = new McpSchema.CallToolResult(
+			List.of(new McpSchema.TextContent("content")), false);
+
+	@Test
+	@DisplayName("Drops a read that completes after a mutation started")
+	public void testPutAfterInvalidateIsDropped() {
+		ToolResultCache cache = cache(Duration.ofMinutes(5));
+		Map<String, Object> args = Map.of("path", "/workspace/a.txt");
+
+		long readGeneration = cache.generation();
+		cache.invalidate(WRITE_FILE, Map.of("path", "/workspace/b.txt"));
+		cache.put(READ_FILE, args, RESULT, readGeneration);
+		assertNull(cache.get(READ_FILE, args));
+
+		cache.put(READ_FILE, args, RESULT, cache.generation());
+		assertNotNull(cache.get(READ_FILE, args));
+	}
+
+	@Test
+	@DisplayName("Invalidates reads of the written path and below it only")
+	public void testPathInvalidation() {
+		ToolResultCache cache = cache(Duration.ofMinutes(5));
+		Map<String, Object> file = Map.of("path", "/workspace/src/a.txt");
+		Map<String, Object> nested = Map.of("path", "/workspace/src/lib/b.txt");
+		Map<String, Object> sibling = Map.of("path", "/workspace/docs/c.txt");
+		for (Map<String, Object> args : List.of(file, nested, sibling)) {
+			cache.put(READ_FILE, args, RESULT, cache.generation());
+		}
+
+		cache.invalidate(WRITE_FILE, Map.of("path", "/workspace/src/lib/../lib"));
+		assertNotNull(cache.get(READ_FILE, file));
+		assertNull(cache.get(READ_FILE, nested));
+		assertNotNull(cache.get(READ_FILE, sibling));
+
+		cache.invalidate(WRITE_FILE, Map.of("path", "/workspace/src"));
+		assertNull(cache.get(READ_FILE, file));
+		assertNotNull(cache.get(READ_FILE, sibling));
+
+		// Reads of other servers are unaffected
+		ToolEntry otherRead = entry("other", "read_file");
+		cache.put(otherRead, sibling, RESULT, cache.generation());
+		cache.invalidate(entry("filesystem", "run_command"), Map.of());
+		assertNull(cache.get(READ_FILE, sibling));
+		assertNotNull(cache.get(otherRead, sibling));
+	}
+
+	@Test
+	@DisplayName("Expires entries after the TTL")
+	public void testTtlExpiry() throws Exception {
+		ToolResultCache cache = cache(Duration.ofMillis(50));
+		Map<String, Object> args = Map.of("path", "/workspace/a.txt");
+
+		cache.put(READ_FILE, args, RESULT, cache.generation());
+		assertNotNull(cache.get(READ_FILE, args));
+		Thread.sleep(100);
+		assertNull(cache.get(READ_FILE, args));
+	}
+
+	private static ToolResultCache cache(Duration ttl) {
+		SandboxMcpProperties properties = new SandboxMcpProperties();
+		properties.setCacheEnabled(true);
+		properties.setCacheTtl(ttl);
+		return new ToolResultCache(properties);
+	}
+
+	private static ToolEntry entry(String server, String name) {
+		McpSchema.Tool tool = new McpSchema.Tool(name, name, "{\"type\":\"object\"}");
+		ToolDefinition definition = ToolDefinition.builder()
+			.name(server + "_" + name)
+			.description(name)
+			.inputSchema("{\"type\":\"object\"}")
+			.build();
+		return new ToolEntry(server, tool, definition);
+	}
+
+}
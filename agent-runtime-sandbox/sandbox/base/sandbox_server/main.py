@@ -21,20 +21,25 @@ Sandbox Server - Python service running inside Docker container
 Receives HTTP requests and executes Python code or shell commands
 """
 
+import asyncio
 import os
+import re
+import shutil
 import sys
 import subprocess
 import tempfile
+import time
 import traceback
 from typing import List, Dict, Any, Optional
 from pathlib import Path
 
-from fastapi import FastAPI, HTTPException, Depends, Security
+from fastapi import FastAPI, HTTPException, Depends, Security, WebSocket, WebSocketDisconnect
 from fastapi.security import HTTPBearer, HTTPAuthorizationCredentials
 from fastapi.middleware.cors import CORSMiddleware
 from pydantic import BaseModel
 import uvicorn
 from IPython.core.interactiveshell import InteractiveShell
+from jupyter_client.manager import AsyncKernelManager
 
 # Initialize FastAPI app
 app = FastAPI(
@@ -62,6 +67,18 @@ ipython_shell = None
 WORKSPACE_DIR = os.getenv("WORKSPACE_DIR", "/workspace")
 SESSION_ID = os.getenv("SESSION_ID", "default")
 SECRET_TOKEN = os.getenv("SECRET_TOKEN", "")
+# Modules imported into the IPython shell before the server accepts requests,
+# e.g. "numpy as np,pandas as pd"
+PRELOAD_MODULES = [m.strip() for m in os.getenv("SANDBOX_PRELOAD_MODULES", "").split(",") if m.strip()]
+preloaded_modules: List[str] = []
+
+# Kernels of the sessions packed into this sandbox, each a separate process with its
+# own working directory under WORKSPACE_DIR/kernels
+kernels: Dict[str, "Kernel"] = {}
+# Kernels still starting, so concurrent starts of one kernel share its startup
+starting_kernels: Dict[str, "asyncio.Task[Kernel]"] = {}
+KERNEL_ID_PATTERN = re.compile(r"[A-Za-z0-9_-]+")
+ANSI_ESCAPE = re.compile(r"\x1b\[[0-9;]*[A-Za-z]")
 
 
 class TextContent(BaseModel):
@@ -81,12 +98,31 @@ class PythonRequest(BaseModel):
     """Request to execute Python code"""
     code: str
     split_output: bool = False
+    kernel_id: Optional[str] = None
 
 
 class ShellRequest(BaseModel):
     """Request to execute shell command"""
     command: str
     split_output: bool = False
+    kernel_id: Optional[str] = None
+
+
+class KernelRequest(BaseModel):
+    """Request to start or shut down a kernel"""
+    kernel_id: str
+
+
+class Kernel:
+    """IPython kernel serving one session"""
+
+    def __init__(self, kernel_id: str, work_dir: str):
+        self.kernel_id = kernel_id
+        self.work_dir = work_dir
+        self.manager = AsyncKernelManager(kernel_name="python3")
+        self.client = None
+        # A kernel runs one cell at a time
+        self.lock = asyncio.Lock()
 
 
 def verify_token(credentials: Optional[HTTPAuthorizationCredentials] = Security(security)):
@@ -201,7 +237,116 @@ def execute_python_code(code: str, split_output: bool = False) -> ExecutionResul
         )
 
 
-def execute_shell_command(command: str, split_output: bool = False) -> ExecutionResult:
+async def start_kernel(kernel_id: str) -> Kernel:
+    """Start a kernel in its own working directory, a no-op when it is running.
+    Concurrent starts of the same kernel wait for the first one."""
+    if not KERNEL_ID_PATTERN.fullmatch(kernel_id):
+        raise HTTPException(status_code=400, detail=f"Invalid kernel id: {kernel_id}")
+    if kernel_id in kernels:
+        return kernels[kernel_id]
+
+    task = starting_kernels.get(kernel_id)
+    if task is None:
+        task = asyncio.create_task(launch_kernel(kernel_id))
+        starting_kernels[kernel_id] = task
+        task.add_done_callback(lambda _: starting_kernels.pop(kernel_id, None))
+    return await asyncio.shield(task)
+
+
+async def launch_kernel(kernel_id: str) -> Kernel:
+    """Start a kernel and register it once it is ready and preloaded"""
+    work_dir = os.path.join(WORKSPACE_DIR, "kernels", kernel_id)
+    Path(work_dir).mkdir(parents=True, exist_ok=True)
+    kernel = Kernel(kernel_id, work_dir)
+    try:
+        await kernel.manager.start_kernel(cwd=work_dir)
+        kernel.client = kernel.manager.client()
+        kernel.client.start_channels()
+        await kernel.client.wait_for_ready(timeout=60)
+        for module in PRELOAD_MODULES:
+            await execute_in_kernel(kernel, f"import {module}")
+    except Exception:
+        await stop_kernel(kernel)
+        raise
+    kernels[kernel_id] = kernel
+    print(f"Kernel {kernel_id} started in {work_dir}")
+    return kernel
+
+
+async def stop_kernel(kernel: Kernel):
+    """Shut down a kernel and delete its working directory"""
+    if kernel.client is not None:
+        kernel.client.stop_channels()
+    try:
+        await kernel.manager.shutdown_kernel(now=True)
+    except Exception as e:
+        print(f"Failed to shut down kernel {kernel.kernel_id}: {e}")
+    shutil.rmtree(kernel.work_dir, ignore_errors=True)
+
+
+def get_kernel(kernel_id: str) -> Kernel:
+    """Look up a running kernel"""
+    kernel = kernels.get(kernel_id)
+    if kernel is None:
+        raise HTTPException(status_code=404, detail=f"Unknown kernel: {kernel_id}")
+    return kernel
+
+
+async def execute_in_kernel(kernel: Kernel, code: str, split_output: bool = False) -> ExecutionResult:
+    """Execute Python code in a session kernel"""
+    stdout_parts: List[str] = []
+    stderr_parts: List[str] = []
+    errors: List[str] = []
+
+    def output_hook(msg):
+        msg_type = msg["header"]["msg_type"]
+        content = msg["content"]
+        if msg_type == "stream":
+            (stdout_parts if content["name"] == "stdout" else stderr_parts).append(content["text"])
+        elif msg_type in ("execute_result", "display_data"):
+            text = content.get("data", {}).get("text/plain")
+            if text:
+                stdout_parts.append(text + "\n")
+        elif msg_type == "error":
+            stderr_parts.append(ANSI_ESCAPE.sub("", "\n".join(content["traceback"])) + "\n")
+            errors.append(f"{content['ename']}: {content['evalue']}")
+
+    try:
+        async with kernel.lock:
+            reply = await kernel.client.execute_interactive(
+                code, store_history=True, output_hook=output_hook, timeout=300)
+    except Exception as e:
+        error_msg = f"Error executing Python code: {str(e)}\n{traceback.format_exc()}"
+        return ExecutionResult(
+            content=[TextContent(
+                type="error",
+                text=error_msg,
+                description="Python execution error"
+            )],
+            is_error=True
+        )
+
+    stdout_content = "".join(stdout_parts)
+    stderr_content = "".join(stderr_parts)
+    content = []
+    if split_output:
+        if stdout_content:
+            content.append(TextContent(type="stdout", text=stdout_content, description="Standard output"))
+        if stderr_content:
+            content.append(TextContent(type="stderr", text=stderr_content, description="Standard error"))
+    elif stdout_content or stderr_content:
+        content.append(TextContent(
+            type="output",
+            text=stdout_content + stderr_content,
+            description="Execution output"
+        ))
+    for error in errors:
+        content.append(TextContent(type="error", text=error, description="Execution error"))
+
+    return ExecutionResult(content=content, is_error=reply["content"]["status"] != "ok")
+
+
+def execute_shell_command(command: str, split_output: bool = False, cwd: str = WORKSPACE_DIR) -> ExecutionResult:
     """Execute shell command"""
     try:
         # Execute command
@@ -210,7 +355,7 @@ def execute_shell_command(command: str, split_output: bool = False) -> Execution
             shell=True,
             capture_output=True,
             text=True,
-            cwd=WORKSPACE_DIR,
+            cwd=cwd,
             timeout=30  # 30 second timeout
         )
         
@@ -289,6 +434,8 @@ async def detailed_health():
         "session_id": SESSION_ID,
         "workspace_dir": WORKSPACE_DIR,
         "python_version": sys.version,
+        "preloaded_modules": preloaded_modules,
+        "kernels": len(kernels),
         "service": "sandbox-server"
     }
 
@@ -299,6 +446,8 @@ async def run_ipython_cell(
     _: bool = Depends(verify_token)
 ) -> ExecutionResult:
     """Execute Python code in IPython cell"""
+    if request.kernel_id:
+        return await execute_in_kernel(get_kernel(request.kernel_id), request.code, request.split_output)
     return execute_python_code(request.code, request.split_output)
 
 
@@ -308,9 +457,152 @@ async def run_shell_command(
     _: bool = Depends(verify_token)
 ) -> ExecutionResult:
     """Execute shell command"""
+    if request.kernel_id:
+        work_dir = get_kernel(request.kernel_id).work_dir
+        return await asyncio.to_thread(execute_shell_command, request.command, request.split_output, work_dir)
     return execute_shell_command(request.command, request.split_output)
 
 
+@app.post("/kernels/start")
+async def create_kernel(
+    request: KernelRequest,
+    _: bool = Depends(verify_token)
+):
+    """Start a kernel for a session packed into this sandbox"""
+    kernel = await start_kernel(request.kernel_id)
+    return {"kernel_id": kernel.kernel_id, "work_dir": kernel.work_dir}
+
+
+@app.post("/kernels/shutdown")
+async def delete_kernel(
+    request: KernelRequest,
+    _: bool = Depends(verify_token)
+):
+    """Shut down a session kernel and delete its working directory, waiting for a
+    start still in progress so the kernel it launches does not leak"""
+    task = starting_kernels.get(request.kernel_id)
+    if task is not None:
+        try:
+            await asyncio.shield(task)
+        except Exception:
+            pass
+    kernel = kernels.pop(request.kernel_id, None)
+    if kernel is not None:
+        await stop_kernel(kernel)
+    return {"kernel_id": request.kernel_id}
+
+
+async def stream_shell_command(command: str, send_chunk, cwd: str = WORKSPACE_DIR) -> ExecutionResult:
+    """Execute shell command, pushing stdout/stderr lines as they are produced"""
+    process = await asyncio.create_subprocess_shell(
+        command,
+        stdout=asyncio.subprocess.PIPE,
+        stderr=asyncio.subprocess.PIPE,
+        cwd=cwd
+    )
+
+    async def pump(stream, stream_type: str):
+        while True:
+            line = await stream.readline()
+            if not line:
+                break
+            await send_chunk(TextContent(
+                type=stream_type,
+                text=line.decode(errors="replace"),
+                description="Standard output" if stream_type == "stdout" else "Standard error"
+            ).model_dump())
+
+    try:
+        await asyncio.wait_for(
+            asyncio.gather(pump(process.stdout, "stdout"), pump(process.stderr, "stderr"), process.wait()),
+            timeout=30
+        )
+    except asyncio.TimeoutError:
+        process.kill()
+        return ExecutionResult(
+            content=[TextContent(
+                type="error",
+                text="Command timed out after 30 seconds",
+                description="Timeout error"
+            )],
+            is_error=True
+        )
+
+    return ExecutionResult(
+        content=[TextContent(
+            type="return_code",
+            text=str(process.returncode),
+            description="Command return code"
+        )],
+        is_error=process.returncode != 0
+    )
+
+
+async def dispatch_channel_request(endpoint: str, payload: Dict[str, Any]) -> ExecutionResult:
+    """Dispatch a channel request to the matching tool"""
+    if endpoint == "/tools/run_ipython_cell":
+        request = PythonRequest(**payload)
+        if request.kernel_id:
+            return await execute_in_kernel(get_kernel(request.kernel_id), request.code, request.split_output)
+        # IPython redirects process-wide stdout, so cells stay on the event loop
+        return execute_python_code(request.code, request.split_output)
+    if endpoint == "/tools/run_shell_command":
+        request = ShellRequest(**payload)
+        work_dir = get_kernel(request.kernel_id).work_dir if request.kernel_id else WORKSPACE_DIR
+        return await asyncio.to_thread(execute_shell_command, request.command, request.split_output, work_dir)
+    raise HTTPException(status_code=404, detail=f"Unknown endpoint: {endpoint}")
+
+
+@app.websocket("/ws")
+async def channel(websocket: WebSocket):
+    """Persistent channel multiplexing requests by correlation ID"""
+    if SECRET_TOKEN and websocket.headers.get("authorization") != f"Bearer {SECRET_TOKEN}":
+        await websocket.close(code=1008)
+        return
+
+    await websocket.accept()
+    send_lock = asyncio.Lock()
+    tasks = set()
+
+    async def send(frame: Dict[str, Any]):
+        async with send_lock:
+            await websocket.send_json(frame)
+
+    async def handle(frame: Dict[str, Any]):
+        frame_id = frame.get("id")
+        endpoint = frame.get("endpoint", "")
+        payload = frame.get("payload") or {}
+        try:
+            if frame.get("type") == "stream":
+                if endpoint != "/tools/run_shell_command":
+                    raise HTTPException(status_code=400, detail=f"Streaming not supported for: {endpoint}")
+
+                async def send_chunk(data):
+                    await send({"id": frame_id, "type": "chunk", "data": data})
+
+                request = ShellRequest(**payload)
+                work_dir = get_kernel(request.kernel_id).work_dir if request.kernel_id else WORKSPACE_DIR
+                result = await stream_shell_command(request.command, send_chunk, work_dir)
+                await send({"id": frame_id, "type": "end", "status": 200, "body": result.model_dump()})
+            else:
+                result = await dispatch_channel_request(endpoint, payload)
+                await send({"id": frame_id, "type": "response", "status": 200, "body": result.model_dump()})
+        except HTTPException as e:
+            await send({"id": frame_id, "type": "response", "status": e.status_code, "body": e.detail})
+        except Exception as e:
+            await send({"id": frame_id, "type": "response", "status": 500, "body": str(e)})
+
+    try:
+        while True:
+            frame = await websocket.receive_json()
+            task = asyncio.create_task(handle(frame))
+            tasks.add(task)
+            task.add_done_callback(tasks.discard)
+    except WebSocketDisconnect:
+        for task in tasks:
+            task.cancel()
+
+
 @app.on_event("startup")
 async def startup_event():
     """Initialize on startup"""
@@ -324,12 +616,51 @@ async def startup_event():
     print(f"Workspace directory: {WORKSPACE_DIR}")
     print(f"Python version: {sys.version}")
 
+    # Runs before uvicorn binds, so the health check only passes once imports are done
+    preload_modules()
+
+
+@app.on_event("shutdown")
+async def shutdown_event():
+    """Stop the session kernels"""
+    if starting_kernels:
+        await asyncio.gather(*starting_kernels.values(), return_exceptions=True)
+    while kernels:
+        _, kernel = kernels.popitem()
+        await stop_kernel(kernel)
+
+
+def preload_modules():
+    """Import the configured modules into the IPython shell"""
+    if not PRELOAD_MODULES:
+        return
+    shell = get_ipython_shell()
+    for module in PRELOAD_MODULES:
+        start = time.monotonic()
+        result = shell.run_cell(f"import {module}", store_history=False, silent=True)
+        if result.success:
+            preloaded_modules.append(module)
+            print(f"Preloaded {module} in {(time.monotonic() - start) * 1000:.0f} ms")
+        else:
+            print(f"Failed to preload {module}: {result.error_in_exec or result.error_before_exec}")
+
 
 if __name__ == "__main__":
-    # Run the server
-    uvicorn.run(
-        app,
-        host="0.0.0.0",
-        port=8000,
-        log_level="info"
-    )
+    # Run the server, on a Unix domain socket when the manager provides one
+    socket_path = os.environ.get("SANDBOX_SOCKET")
+    if socket_path:
+        if os.path.exists(socket_path):
+            os.remove(socket_path)
+        uvicorn.run(
+            app,
+            uds=socket_path,
+            log_level="info"
+        )
+    else:
+        # The process backend runs several servers on one host, each on its own port
+        uvicorn.run(
+            app,
+            host=os.environ.get("SANDBOX_HOST", "0.0.0.0"),
+            port=int(os.environ.get("SANDBOX_PORT", "8000")),
+            log_level="info"
+        )
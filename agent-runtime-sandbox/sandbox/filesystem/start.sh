@@ -16,6 +16,11 @@
 # specific language governing permissions and limitations
 # under the License.
 
+# 共享的npm缓存以只读方式挂载, npm无法直接使用只读缓存, 启动时复制到本地缓存
+if [ -n "$AGENT_RUNTIME_NPM_CACHE_SEED" ] && [ -d "$AGENT_RUNTIME_NPM_CACHE_SEED/_cacache" ] && [ ! -d "$HOME/.npm/_cacache" ]; then
+  mkdir -p "$HOME/.npm" && cp -r "$AGENT_RUNTIME_NPM_CACHE_SEED/_cacache" "$HOME/.npm/"
+fi
+
 # 启动 java 服务
 cd /app/java && nohup java -jar -Dspring.ai.mcp.client.stdio.servers-configuration=file:///app/java/mcp-servers.json ./app.jar > log.file 2>log.error &
 